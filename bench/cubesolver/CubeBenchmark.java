@@ -0,0 +1,68 @@
+package cubesolver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the rest of the Cube methods the window calls on every click.
+ *
+ * @author Andrew
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CubeBenchmark {
+	private Cube solved;
+	private Cube scrambled;
+
+	@Setup
+	public void setUp() {
+		solved = new Cube();
+		scrambled = new Cube();
+		scrambled.scramble();
+	}
+
+	/**
+	 * isSolved only reads the count of mismatched stickers the cube keeps,
+	 * so this should take no longer than isSolvedScrambled.
+	 */
+	@Benchmark
+	public boolean isSolvedSolved() {
+		return solved.isSolved();
+	}
+
+	@Benchmark
+	public boolean isSolvedScrambled() {
+		return scrambled.isSolved();
+	}
+
+	@Benchmark
+	public Cube scramble() {
+		scrambled.scramble();
+		return scrambled;
+	}
+
+	@Benchmark
+	public cubeColor[][] getCubeStateDeepCopy() {
+		return scrambled.getCubeStateDeepCopy();
+	}
+
+	@Benchmark
+	public String printCube() {
+		return scrambled.printCube();
+	}
+}
@@ -0,0 +1,52 @@
+package cubesolver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times Cube.changeCube for every slice and direction.
+ *
+ * @author Andrew
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+	@Param({ "1", "2", "3", "4", "5", "6", "7", "8", "9" })
+	public int slice;
+
+	@Param({ "0", "1" })
+	public int direction;
+
+	private Cube cube;
+
+	@Setup
+	public void setUp() {
+		cube = new Cube();
+		cube.scramble();
+	}
+
+	/**
+	 * The cube is returned so the move cannot be optimised away.
+	 */
+	@Benchmark
+	public Cube changeCube() {
+		cube.changeCube(direction, slice);
+		return cube;
+	}
+}
@@ -0,0 +1,100 @@
+package cubesolver;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the parallel optimal solver on the same scrambles with more and
+ * more threads, to show how well it scales. Pick the counts with
+ * -Dbench.args="ParallelBenchmark -p threads=1,2,4,8,16".
+ *
+ * The time can drop by more than the number of threads, because another
+ * thread may come across a solution in a subtree a single thread would only
+ * reach later.
+ *
+ * @author Andrew
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ParallelBenchmark {
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	/**
+	 * The length of each random scramble.
+	 */
+	@Param({ "14" })
+	public int moves;
+
+	@Param({ "3" })
+	public int cubes;
+
+	private Cube[] scrambles;
+	private ParallelOptimalSolver solver;
+
+	@Setup
+	public void setUp() {
+		scrambles = new Cube[cubes];
+		Random random = new Random(1);
+		for (int i = 0; i < cubes; i++) {
+			scrambles[i] = new Cube();
+			for (int j = 0; j < moves; j++) {
+				scrambles[i].applyMove(random.nextInt(MoveTable.MOVE_COUNT));
+			}
+		}
+		solver = new ParallelOptimalSolver(PatternDatabase.getInstance(),
+				new ForkJoinPool(threads));
+	}
+
+	@TearDown
+	public void tearDown() {
+		solver.shutdown();
+	}
+
+	/**
+	 * Solves every scramble, returning the nodes searched.
+	 */
+	@Benchmark
+	public long solve() {
+		long nodes = 0;
+		for (Cube cube : scrambles) {
+			int[] solution = solver.solve(cube);
+			nodes += solver.getNodeCount();
+			check(cube, solution);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Solves the cube and puts it back, to be sure the solution works.
+	 */
+	private static void check(Cube cube, int[] solution) {
+		cube.applyMoves(solution);
+		boolean solved = cube.isSolved();
+		for (int i = solution.length - 1; i >= 0; i--) {
+			cube.applyMove(MoveTable.inverse(solution[i]));
+		}
+		if (!solved) {
+			throw new IllegalStateException("Bad solution.");
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package cubesolver;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times drawing a cube into an image, so no window is needed: every sticker
+ * with CubeRenderer.drawCube, and after one move with a CubeRenderer, which
+ * redraws only the stickers that changed.
+ *
+ * @author Andrew
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+	/**
+	 * Big enough for the canvas in the window.
+	 */
+	private static final int SIZE = 300;
+
+	private Cube cube;
+	private BufferedImage image;
+	private Graphics2D graphics;
+	private CubeRenderer renderer;
+
+	@Setup
+	public void setUp() {
+		cube = new Cube();
+		cube.scramble();
+		image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+		renderer = new CubeRenderer();
+		renderer.update(graphics, cube);
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage drawCube() {
+		CubeRenderer.drawCube(graphics, cube);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage moveAndUpdate() {
+		cube.changeCube(0, 1);
+		renderer.update(graphics, cube);
+		return image;
+	}
+}
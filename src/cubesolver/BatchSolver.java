@@ -0,0 +1,307 @@
+package cubesolver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a file of cubes without the window, for long offline jobs.
+ *
+ * Each line of the input is one cube, given either as a scramble or as its
+ * stickers. A scramble is a list of moves separated by spaces, each written
+ * slice_direction as for Cube.changeCube, so "7_0 3_1" turns slice 7 in
+ * direction 0 and then slice 3 in direction 1. A scramble may also be in
+ * the usual notation read by Notation, such as "R U2 F'". Stickers are 54
+ * colour letters, W R B O G Y, in the order of Cube.getSquare, face by
+ * face.
+ * Blank lines and lines starting with # are copied through.
+ *
+ * Each output line matches the input line at the same place and is either
+ *
+ * <pre>
+ * OK   moves   microseconds   solution
+ * ERROR   message
+ * </pre>
+ *
+ * separated by tabs, with the solution in the same slice_direction form.
+ * Every solution is checked by replaying the cube and the solution with
+ * changeCube.
+ *
+ * Lines are read only as fast as the workers can take them, so only a few
+ * cubes per thread are held at once whatever the size of the file.
+ *
+ * Usage: java cubesolver.BatchSolver [-mode MODE] [-threads N] [-cache N]
+ * input output. The mode is a SolverMode, TWO_PHASE by default. With
+ * -cache, up to N solutions are remembered so repeated cubes are not solved
+ * again. An input or output of - means the console.
+ *
+ * @author Andrew
+ *
+ */
+public class BatchSolver {
+	/**
+	 * Cubes queued for each thread before reading waits.
+	 */
+	private static final int QUEUE_PER_THREAD = 4;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final SolverMode mode;
+	private final int threads;
+	private final SolutionCache cache;
+
+	private long count;
+	private long failed;
+	private long totalMoves;
+	private long totalMicros;
+	private long worstMicros;
+
+	/**
+	 * @param mode
+	 *            How to solve each cube.
+	 * @param threads
+	 *            Number of cubes solved at once.
+	 * @param cache
+	 *            Solutions shared by the threads, or null for none.
+	 */
+	public BatchSolver(SolverMode mode, int threads, SolutionCache cache) {
+		this.mode = mode;
+		this.threads = threads;
+		this.cache = cache;
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		SolverMode mode = SolverMode.TWO_PHASE;
+		int threads = Runtime.getRuntime().availableProcessors();
+		SolutionCache cache = null;
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i += 2) {
+			if (args[i].equals("-mode")) {
+				mode = SolverMode.valueOf(args[i + 1]);
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-cache")) {
+				cache = new SolutionCache(Integer.parseInt(args[i + 1]));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (args.length - i != 2) {
+			System.err.println("Usage: java cubesolver.BatchSolver "
+					+ "[-mode MODE] [-threads N] [-cache N] input output");
+			System.exit(2);
+		}
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				args[i].equals("-") ? System.in
+						: new FileInputStream(args[i]), UTF8));
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				args[i + 1].equals("-") ? System.out : new FileOutputStream(
+						args[i + 1]), UTF8));
+		BatchSolver batch = new BatchSolver(mode, threads, cache);
+		long start = System.nanoTime();
+		try {
+			batch.run(in, out);
+		} finally {
+			in.close();
+			out.close();
+		}
+		System.err.println(batch.summary(System.nanoTime() - start));
+		if (cache != null) {
+			System.err.println(cache);
+		}
+	}
+
+	/**
+	 * Solves every cube read from in, writing the results to out in the same
+	 * order.
+	 *
+	 * @param in
+	 * @param out
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void run(BufferedReader in, Writer out) throws IOException,
+			InterruptedException {
+		final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+			@Override
+			protected Solver initialValue() {
+				Solver solver = mode.createSolver();
+				return cache == null ? solver : new CachingSolver(solver,
+						cache);
+			}
+		};
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		// The results are waited for in the order the lines were read. The
+		// queue being full is what stops the reading getting ahead.
+		BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<Future<String>>(
+				threads * QUEUE_PER_THREAD);
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String item = line;
+				Future<String> result = pool.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						return solve(solvers.get(), item);
+					}
+				});
+				if (!pending.offer(result)) {
+					write(pending.take(), out);
+					pending.put(result);
+				}
+			}
+			while (!pending.isEmpty()) {
+				write(pending.take(), out);
+			}
+			out.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void write(Future<String> result, Writer out) throws IOException,
+			InterruptedException {
+		try {
+			out.write(result.get());
+		} catch (ExecutionException e) {
+			recordFailure();
+			out.write("ERROR\t" + e.getCause());
+		}
+		out.write('\n');
+	}
+
+	/**
+	 * Solves one line of input.
+	 *
+	 * @return The output line.
+	 */
+	private String solve(Solver solver, String line) {
+		String item = line.trim();
+		if (item.isEmpty() || item.startsWith("#")) {
+			return line;
+		}
+		try {
+			Cube cube = parse(item);
+			long start = System.nanoTime();
+			int[] solution = solver.solve(cube);
+			long micros = (System.nanoTime() - start) / 1000;
+			for (int move : solution) {
+				cube.changeCube(MoveTable.direction(move),
+						MoveTable.slice(move));
+			}
+			if (!cube.isSolved()) {
+				recordFailure();
+				return "ERROR\tSolution does not solve the cube.";
+			}
+			record(solution.length, micros);
+			StringBuilder result = new StringBuilder();
+			result.append("OK\t").append(solution.length).append('\t')
+					.append(micros).append('\t');
+			for (int i = 0; i < solution.length; i++) {
+				if (i > 0) {
+					result.append(' ');
+				}
+				result.append(MoveTable.slice(solution[i])).append('_')
+						.append(MoveTable.direction(solution[i]));
+			}
+			return result.toString();
+		} catch (IllegalArgumentException e) {
+			recordFailure();
+			return "ERROR\t" + e.getMessage();
+		}
+	}
+
+	/**
+	 * Builds the cube a line describes. A line is taken as stickers only if
+	 * it is 54 colour letters and nothing else, since a scramble in notation
+	 * can be 54 characters long too. Otherwise it is read as notation, and
+	 * failing that as slice_direction moves.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the line is neither a scramble, in either form, nor 54
+	 *             stickers of a cube that can be solved.
+	 */
+	static Cube parse(String item) {
+		Cube cube = new Cube();
+		if (isStickers(item)) {
+			FaceletParser.parse(item, cube);
+			return cube;
+		}
+		try {
+			cube.applyMoves(Notation.parse(item));
+			return cube;
+		} catch (IllegalArgumentException e) {
+			if (item.indexOf('_') < 0) {
+				throw e;
+			}
+		}
+		for (String token : item.split("\\s+")) {
+			int split = token.indexOf('_');
+			if (split < 0) {
+				throw new IllegalArgumentException("Bad move " + token + ".");
+			}
+			try {
+				cube.changeCube(Integer.parseInt(token.substring(split + 1)),
+						Integer.parseInt(token.substring(0, split)));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad move " + token + ".");
+			}
+		}
+		return cube;
+	}
+
+	/**
+	 * @return True if the line is 54 of the letters W R B O G Y.
+	 */
+	private static boolean isStickers(String item) {
+		if (item.length() != MoveTable.STICKERS) {
+			return false;
+		}
+		for (int i = 0; i < item.length(); i++) {
+			if (FaceletParser.COLOR_LETTERS.indexOf(item.charAt(i)) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private synchronized void record(int moves, long micros) {
+		count++;
+		totalMoves += moves;
+		totalMicros += micros;
+		worstMicros = Math.max(worstMicros, micros);
+	}
+
+	private synchronized void recordFailure() {
+		count++;
+		failed++;
+	}
+
+	/**
+	 * @param nanos
+	 *            Time the whole run took.
+	 * @return Totals for the cubes solved so far.
+	 */
+	public synchronized String summary(long nanos) {
+		long solved = count - failed;
+		double seconds = nanos / 1e9;
+		return String.format("%d cubes, %d failed, %.1f cubes/s, "
+				+ "%.1f moves and %.2fms per cube, slowest %.2fms", count,
+				failed, count / seconds, solved == 0 ? 0.0
+						: (double) totalMoves / solved, solved == 0 ? 0.0
+						: totalMicros / 1000.0 / solved, worstMicros / 1000.0);
+	}
+}
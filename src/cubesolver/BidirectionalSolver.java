@@ -0,0 +1,347 @@
+package cubesolver;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds the shortest way to solve a cube by searching breadth first from
+ * both ends at once: forwards from the cube and backwards from solved, one
+ * layer of moves at a time, until a position turns up on both sides. For a
+ * cube a few moves from solved this looks at far fewer positions than
+ * OptimalSolver and needs no pattern databases.
+ *
+ * Each side keeps every position it has reached in a PackedStateMap, with
+ * how many moves it took and the last move, so the moves can be traced
+ * back from where the sides meet, and its newest layer in an array of
+ * longs, so a layer is made without walking the whole map. Each layer is
+ * about 13 times the last, so memory is what limits how far it can go.
+ * Before each layer the solver works out how much memory it could need, and
+ * if that is more than its limit, or a side would go past MAX_DEPTH, it
+ * gives the cube to another solver instead.
+ *
+ * The side with the smaller last layer is always the one taken further.
+ * When the sides first meet, every position in the new layer is as far
+ * from the cube as it could be, so the solution is as short as possible.
+ *
+ * Every call to changeCube counts as one move, as for OptimalSolver.
+ *
+ * @author Andrew
+ *
+ */
+public class BidirectionalSolver implements Solver {
+	/**
+	 * Memory the maps may use unless told otherwise, in bytes.
+	 */
+	public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+	/**
+	 * Furthest either side goes, so solutions of up to twice this many moves
+	 * are found without help.
+	 */
+	public static final int MAX_DEPTH = 7;
+	/**
+	 * The most new positions one position can lead to, every move but the
+	 * one that undoes the last.
+	 */
+	private static final int BRANCHES = MoveTable.MOVE_COUNT - 1;
+	/**
+	 * Positions expanded between checks for being interrupted.
+	 */
+	private static final int CHECK_MASK = (1 << 14) - 1;
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	/**
+	 * Maps up to this many slots are cleared and kept for the next solve.
+	 */
+	private static final int REUSE_CAPACITY = 1 << 16;
+	/**
+	 * A map value is the depth times 32 plus the last move plus 1, with
+	 * nothing for the first position of a side.
+	 */
+	private static final int DEPTH_SHIFT = 5;
+	private static final int MOVE_MASK = (1 << DEPTH_SHIFT) - 1;
+
+	private final long memoryLimit;
+	private final SolverMode fallbackMode;
+	private Solver fallback;
+	private final CubieCube current = new CubieCube();
+	private final CubieCube next = new CubieCube();
+	private final int[] path = new int[MAX_DEPTH * 2 + 1];
+	// Kept between solves while they are small.
+	private final PackedStateMap[] sides = new PackedStateMap[2];
+	private final long[][] layers = new long[2][];
+	private final int[] layerSizes = new int[2];
+	private final int[] depths = new int[2];
+	private long nodes;
+	private boolean fellBack;
+	// Left by expand for search and trace.
+	private int added;
+	private long meetHigh;
+	private long meetLow;
+
+	/**
+	 * Makes a solver that uses at most DEFAULT_MEMORY_LIMIT and hands
+	 * anything further to OptimalSolver.
+	 */
+	public BidirectionalSolver() {
+		this(DEFAULT_MEMORY_LIMIT, SolverMode.OPTIMAL);
+	}
+
+	/**
+	 * @param memoryLimit
+	 *            Most bytes the maps may use.
+	 * @param fallback
+	 *            How to solve a cube that would need more. The solver is only
+	 *            made if it is needed.
+	 */
+	public BidirectionalSolver(long memoryLimit, SolverMode fallback) {
+		this.memoryLimit = memoryLimit;
+		this.fallbackMode = fallback;
+	}
+
+	/**
+	 * If the thread is interrupted the search stops with a
+	 * CancellationException.
+	 */
+	@Override
+	public int[] solve(Cube cube) {
+		byte[] stickers = cube.stickers();
+		int rotation = Rotations.homeRotation(stickers);
+		CubieCube start = CubieCube.fromStickers(Rotations.toCentreFrame(
+				stickers, rotation));
+		start.verify();
+		nodes = 0;
+		fellBack = false;
+		if (start.isSolved()) {
+			return new int[0];
+		}
+		int length;
+		try {
+			length = search(start);
+		} finally {
+			release();
+		}
+		if (length < 0) {
+			fellBack = true;
+			if (fallback == null) {
+				fallback = fallbackMode.createSolver();
+			}
+			return fallback.solve(cube);
+		}
+		int[] frameMoves = new int[length];
+		System.arraycopy(path, 0, frameMoves, 0, length);
+		return Rotations.toPhysical(rotation, frameMoves);
+	}
+
+	/**
+	 * @return The number of positions expanded by the last solve, not
+	 *         counting any by the fallback.
+	 */
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * @return True if the last solve was handed to the fallback.
+	 */
+	public boolean usedFallback() {
+		return fellBack;
+	}
+
+	/**
+	 * Runs the search, leaving the solution in path.
+	 *
+	 * @return The length of the solution, or -1 if it would take too much
+	 *         memory or go too deep.
+	 */
+	private int search(CubieCube start) {
+		for (int side = 0; side < 2; side++) {
+			if (sides[side] == null) {
+				sides[side] = new PackedStateMap(INITIAL_CAPACITY);
+			} else {
+				sides[side].clear();
+			}
+			layers[side] = new long[2];
+			depths[side] = 0;
+			layerSizes[side] = 1;
+		}
+		long startHigh = high(start);
+		long startLow = low(start);
+		CubieCube solved = new CubieCube();
+		long solvedHigh = high(solved);
+		long solvedLow = low(solved);
+		sides[0].putIfAbsent(startHigh, startLow, 0);
+		sides[1].putIfAbsent(solvedHigh, solvedLow, 0);
+		layers[0][0] = startHigh;
+		layers[0][1] = startLow;
+		layers[1][0] = solvedHigh;
+		layers[1][1] = solvedLow;
+		while (true) {
+			int side = layerSizes[0] <= layerSizes[1] ? 0 : 1;
+			if (depths[side] == MAX_DEPTH) {
+				return -1;
+			}
+			PackedStateMap mine = sides[side];
+			PackedStateMap other = sides[1 - side];
+			long most = (long) layerSizes[side]
+					* (depths[side] == 0 ? MoveTable.MOVE_COUNT : BRANCHES);
+			long capacity = PackedStateMap.capacityFor(mine.size() + most);
+			// The maps, the layer being expanded and the one being made.
+			long bytes = (capacity + other.capacity())
+					* PackedStateMap.SLOT_BYTES + (layerSizes[side] + most) * 16
+					+ (long) layers[1 - side].length * 8;
+			// Growing a map keeps its old slots until the new ones are filled.
+			if (capacity > mine.capacity()) {
+				bytes += (long) mine.capacity() * PackedStateMap.SLOT_BYTES;
+			}
+			// A map keeps two longs a slot, so it can have at most 1 << 29.
+			if (capacity >= 1 << 30 || most > 1 << 29 || bytes > memoryLimit) {
+				return -1;
+			}
+			if (capacity > mine.capacity()) {
+				mine.resize((int) capacity);
+			}
+			long[] nextLayer = new long[(int) most * 2];
+			if (expand(mine, other, layers[side], layerSizes[side], nextLayer,
+					depths[side])) {
+				return trace(sides[0], sides[1]);
+			}
+			layers[side] = nextLayer;
+			layerSizes[side] = added;
+			depths[side]++;
+		}
+	}
+
+	/**
+	 * Lets go of the layers and any map too big to keep, so a solver left
+	 * waiting does not hold on to the memory of its last long solve.
+	 */
+	private void release() {
+		for (int side = 0; side < 2; side++) {
+			layers[side] = null;
+			if (sides[side] != null
+					&& sides[side].capacity() > REUSE_CAPACITY) {
+				sides[side] = null;
+			}
+		}
+	}
+
+	/**
+	 * Makes the next layer of one side from the last.
+	 *
+	 * @param layer
+	 *            The positions of the last layer, each as its high and low
+	 *            halves.
+	 * @param nextLayer
+	 *            Filled the same way with the new positions.
+	 * @return True if it met the other side, leaving the meeting position in
+	 *         meetHigh and meetLow. Otherwise added is set to the number of
+	 *         positions in the new layer.
+	 */
+	private boolean expand(PackedStateMap mine, PackedStateMap other,
+			long[] layer, int size, long[] nextLayer, int depth) {
+		added = 0;
+		int value = (depth + 1) << DEPTH_SHIFT;
+		for (int i = 0; i < size * 2; i += 2) {
+			if ((++nodes & CHECK_MASK) == 0
+					&& Thread.currentThread().isInterrupted()) {
+				throw new CancellationException("Solve interrupted.");
+			}
+			long high = layer[i];
+			long low = layer[i + 1];
+			unpack(high, low, current);
+			int last = depth == 0 ? -1
+					: (mine.get(high, low) & MOVE_MASK) - 1;
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				if (last >= 0 && move == MoveTable.inverse(last)) {
+					continue;
+				}
+				CubieCube.multiply(current, CubieCube.MOVES[move], next);
+				long nextHigh = high(next);
+				long nextLow = low(next);
+				if (mine.putIfAbsent(nextHigh, nextLow, value | (move + 1))) {
+					if (other.get(nextHigh, nextLow) >= 0) {
+						meetHigh = nextHigh;
+						meetLow = nextLow;
+						return true;
+					}
+					nextLayer[added * 2] = nextHigh;
+					nextLayer[added * 2 + 1] = nextLow;
+					added++;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Follows the moves back from the meeting position to the cube and to
+	 * solved, and puts them in path in order from the cube.
+	 *
+	 * @return The length of the solution.
+	 */
+	private int trace(PackedStateMap forward, PackedStateMap backward) {
+		int middle = forward.get(meetHigh, meetLow) >>> DEPTH_SHIFT;
+		unpack(meetHigh, meetLow, current);
+		for (int i = middle - 1; i >= 0; i--) {
+			path[i] = stepBack(forward);
+		}
+		int length = middle;
+		unpack(meetHigh, meetLow, current);
+		int move;
+		while ((move = stepBack(backward)) >= 0) {
+			path[length++] = MoveTable.inverse(move);
+		}
+		return length;
+	}
+
+	/**
+	 * Undoes the move that reached current on one side.
+	 *
+	 * @return The move, or -1 if current is where that side started.
+	 */
+	private int stepBack(PackedStateMap side) {
+		int move = (side.get(high(current), low(current)) & MOVE_MASK) - 1;
+		if (move >= 0) {
+			CubieCube.multiply(current, CubieCube.MOVES[MoveTable.inverse(move)],
+					next);
+			current.set(next);
+		}
+		return move;
+	}
+
+	/**
+	 * @return The corners, 5 bits each: the corner in the position times 4
+	 *         plus its twist. Never 0, since only one position can hold
+	 *         corner 0.
+	 */
+	private static long high(CubieCube cube) {
+		long high = 0;
+		for (int i = 0; i < CubieCube.CORNERS; i++) {
+			high = high << 5 | cube.cp[i] << 2 | cube.co[i];
+		}
+		return high;
+	}
+
+	/**
+	 * @return The edges, 5 bits each: the edge in the position times 2 plus
+	 *         its flip.
+	 */
+	private static long low(CubieCube cube) {
+		long low = 0;
+		for (int i = 0; i < CubieCube.EDGES; i++) {
+			low = low << 5 | cube.ep[i] << 1 | cube.eo[i];
+		}
+		return low;
+	}
+
+	private static void unpack(long high, long low, CubieCube cube) {
+		for (int i = CubieCube.CORNERS - 1; i >= 0; i--) {
+			cube.cp[i] = (byte) ((high >>> 2) & 7);
+			cube.co[i] = (byte) (high & 3);
+			high >>>= 5;
+		}
+		for (int i = CubieCube.EDGES - 1; i >= 0; i--) {
+			cube.ep[i] = (byte) ((low >>> 1) & 15);
+			cube.eo[i] = (byte) (low & 1);
+			low >>>= 5;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package cubesolver;
+
+/**
+ * Puts a solution cache in front of another solver, so a state that has
+ * been solved before, or any state symmetric to it, is answered straight
+ * away. Many caching solvers, each with its own solver, can share one cache
+ * across threads.
+ *
+ * @author Andrew
+ *
+ */
+public class CachingSolver implements Solver {
+	private final Solver solver;
+	private final SolutionCache cache;
+
+	/**
+	 * @param solver
+	 *            Solves the cubes that are not in the cache.
+	 * @param cache
+	 *            May be shared with other caching solvers.
+	 */
+	public CachingSolver(Solver solver, SolutionCache cache) {
+		this.solver = solver;
+		this.cache = cache;
+	}
+
+	@Override
+	public int[] solve(Cube cube) {
+		Symmetry.Canonical canonical = Symmetry.canonical(cube.stickers());
+		int[] solution = cache.get(canonical.key);
+		if (solution != null) {
+			return Symmetry.fromCanonical(canonical.symmetry, solution);
+		}
+		solution = solver.solve(cube);
+		cache.put(canonical.key,
+				Symmetry.toCanonical(canonical.symmetry, solution));
+		return solution;
+	}
+
+	/**
+	 * @return The cache in use.
+	 */
+	public SolutionCache getCache() {
+		return cache;
+	}
+}
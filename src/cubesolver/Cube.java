@@ -1,6 +1,7 @@
 package cubesolver;
 
-
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Class to hold state of cube. Also to provide methods to alter the cube, and
@@ -14,661 +15,323 @@ public class Cube {
 	 * Stores the state of the cube. Top face is 0, 1 through 4 are side faces
 	 * going round clockwise looking from the top, and 5 is the bottom face.
 	 * Face 1 is the front face. The squares on each face are numbered from left
-	 * to right and top to bottom.
+	 * to right and top to bottom. Square j of face i is held at index
+	 * i * 9 + j, and each entry is the ordinal of its cubeColor.
 	 */
-	public cubeColor[][] cubeState;
-	private static final int CUBE_FACES = 6;
-	private static final int CUBE_SQUARES = 9;
-
+	private byte[] stickers;
 	/**
-	 * Default constructor.
+	 * Second buffer the moves are written into before it is swapped with
+	 * stickers, so changing the cube never allocates.
 	 */
-	public Cube() {
-		// 6 faces and 9 squares on each face
-		cubeState = new cubeColor[Cube.CUBE_FACES][Cube.CUBE_SQUARES];
-		setColors();
-	}
-
+	private byte[] next;
 	/**
-	 * Helper method to return a deep copy of the cubestate array. Makes
-	 * makeNewCube into a public method effectively.
-	 * 
-	 * @return copyCubeState
+	 * Number of stickers on each face that differ from that face's centre,
+	 * kept up to date as the cube moves so checking for a solved cube does
+	 * not have to look at every sticker.
 	 */
-	public cubeColor[][] getCubeStateDeepCopy() {
-		cubeColor[][] copyCubeState = makeNewCube(this.cubeState);
-		return copyCubeState;
-	}
-
+	private final byte[] faceMismatches = new byte[Cube.CUBE_FACES];
 	/**
-	 * Method to move the cube. To change the cube, allow methods to turn one of
-	 * the slices on the top face either direction or the front face left or
-	 * right. This fully describes available moves.
-	 * 
-	 * @throws IllegalArgumentException
-	 *             Either checks must be made the parameters are valid or this
-	 *             exception must be caught.
-	 * 
-	 * @param direction
-	 *            Either 0 for "left" or 1 for "right". For slices 1 to 3 0 is
-	 *            frontwards and 1 is backwards.
-	 * @param slice
-	 *            Range 1 to 9, 1 is left slice, 3 is right slice; 4 is front, 6
-	 *            is back; 7 is top of front face, 9 is bottom of front face.
+	 * Total of faceMismatches.
 	 */
-	public void changeCube(int direction, int slice) {
-		// Here we change the state of the cube by moving colors from one state
-		// to the next.
-
-		if (direction != 0 && direction != 1) {
-			throw new IllegalArgumentException("Invalid move.");
-		}
-		cubeColor[][] newCubeState = makeNewCube(this.cubeState);
-		switch (slice) {
-		case 1:
-			if (direction == 0) {
-				move_1_0(newCubeState);
-			} else {
-				move_1_1(newCubeState);
-			}
-			break;
-		case 2:
-			if (direction == 0) {
-				move_2_0(newCubeState);
-			} else {
-				move_2_1(newCubeState);
-			}
-			break;
-		case 3:
-			if (direction == 0) {
-				move_3_0(newCubeState);
-			} else {
-				move_3_1(newCubeState);
-			}
-			break;
-		case 4:
-			if (direction == 0) {
-				move_4_0(newCubeState);
-			} else {
-				move_4_1(newCubeState);
-			}
-			break;
-		case 5:
-			if (direction == 0) {
-				move_5_0(newCubeState);
-			} else {
-				move_5_1(newCubeState);
-			}
-			break;
-		case 6:
-			if (direction == 0) {
-				move_6_0(newCubeState);
-			} else {
-				move_6_1(newCubeState);
-			}
-			break;
-		case 7:
-			if (direction == 0) {
-				move_7_0(newCubeState);
-			} else {
-				move_7_1(newCubeState);
-			}
-			break;
-		case 8:
-			if (direction == 0) {
-				move_8_0(newCubeState);
-			} else {
-				move_8_1(newCubeState);
-			}
-			break;
-		case 9:
-			if (direction == 0) {
-				move_9_0(newCubeState);
-			} else {
-				move_9_1(newCubeState);
-			}
-			break;
-		default:
-			throw new IllegalArgumentException("Invalid move.");
-		}
-		this.cubeState = newCubeState;
-	}
-
+	private int mismatches;
 	/**
-	 * Hard coded method to move colors around for a given move.
-	 * 
-	 * @param newCubeColor
+	 * Bit i is set when face i is all one color.
 	 */
-	private void move_9_1(cubeColor[][] newCubeColor) {
-		newCubeColor[4][6] = this.cubeState[1][6];
-		newCubeColor[4][7] = this.cubeState[1][7];
-		newCubeColor[4][8] = this.cubeState[1][8];
-
-		newCubeColor[3][6] = this.cubeState[4][6];
-		newCubeColor[3][7] = this.cubeState[4][7];
-		newCubeColor[3][8] = this.cubeState[4][8];
-
-		newCubeColor[2][6] = this.cubeState[3][6];
-		newCubeColor[2][7] = this.cubeState[3][7];
-		newCubeColor[2][8] = this.cubeState[3][8];
-
-		newCubeColor[1][6] = this.cubeState[2][6];
-		newCubeColor[1][7] = this.cubeState[2][7];
-		newCubeColor[1][8] = this.cubeState[2][8];
-
-		newCubeColor[5][2] = this.cubeState[5][0];
-		newCubeColor[5][5] = this.cubeState[5][1];
-		newCubeColor[5][8] = this.cubeState[5][2];
-		newCubeColor[5][1] = this.cubeState[5][3];
-		newCubeColor[5][7] = this.cubeState[5][5];
-		newCubeColor[5][0] = this.cubeState[5][6];
-		newCubeColor[5][3] = this.cubeState[5][7];
-		newCubeColor[5][6] = this.cubeState[5][8];
-	}
-
+	private int solvedFaces = Cube.ALL_FACES;
 	/**
-	 * Hard coded method to move colors around for a given move.
-	 * 
-	 * @param newCubeColor
+	 * Zobrist hash of the stickers: the XOR of ZOBRIST_KEYS for the color
+	 * of every sticker. A move only changes the keys of the stickers it
+	 * moves, so the hash is kept up to date from those alone.
 	 */
-	private void move_9_0(cubeColor[][] newCubeColor) {
-		newCubeColor[2][6] = this.cubeState[1][6];
-		newCubeColor[2][7] = this.cubeState[1][7];
-		newCubeColor[2][8] = this.cubeState[1][8];
-
-		newCubeColor[3][6] = this.cubeState[2][6];
-		newCubeColor[3][7] = this.cubeState[2][7];
-		newCubeColor[3][8] = this.cubeState[2][8];
-
-		newCubeColor[4][6] = this.cubeState[3][6];
-		newCubeColor[4][7] = this.cubeState[3][7];
-		newCubeColor[4][8] = this.cubeState[3][8];
-
-		newCubeColor[1][6] = this.cubeState[4][6];
-		newCubeColor[1][7] = this.cubeState[4][7];
-		newCubeColor[1][8] = this.cubeState[4][8];
-
-		newCubeColor[5][6] = this.cubeState[5][0];
-		newCubeColor[5][3] = this.cubeState[5][1];
-		newCubeColor[5][0] = this.cubeState[5][2];
-		newCubeColor[5][7] = this.cubeState[5][3];
-		newCubeColor[5][1] = this.cubeState[5][5];
-		newCubeColor[5][8] = this.cubeState[5][6];
-		newCubeColor[5][5] = this.cubeState[5][7];
-		newCubeColor[5][2] = this.cubeState[5][8];
-	}
-
+	private long hash;
+	private static final int CUBE_FACES = 6;
+	private static final int CUBE_SQUARES = 9;
+	private static final int CUBE_STICKERS = CUBE_FACES * CUBE_SQUARES;
+	private static final int ALL_FACES = (1 << Cube.CUBE_FACES) - 1;
+	private static final cubeColor[] COLORS = cubeColor.values();
+	private static final Scrambler SCRAMBLER = new Scrambler();
 	/**
-	 * Hard coded method to move colors around for a given move.
-	 * 
-	 * @param newCubeColor
+	 * A random key for each sticker and color, indexed sticker * 6 + color.
+	 * The seed is fixed so a state hashes the same in every run.
 	 */
-	private void move_8_1(cubeColor[][] newCubeColor) {
-		newCubeColor[4][3] = this.cubeState[1][3];
-		newCubeColor[4][4] = this.cubeState[1][4];
-		newCubeColor[4][5] = this.cubeState[1][5];
-
-		newCubeColor[3][3] = this.cubeState[4][3];
-		newCubeColor[3][4] = this.cubeState[4][4];
-		newCubeColor[3][5] = this.cubeState[4][5];
-
-		newCubeColor[2][3] = this.cubeState[3][3];
-		newCubeColor[2][4] = this.cubeState[3][4];
-		newCubeColor[2][5] = this.cubeState[3][5];
-
-		newCubeColor[1][3] = this.cubeState[2][3];
-		newCubeColor[1][4] = this.cubeState[2][4];
-		newCubeColor[1][5] = this.cubeState[2][5];
+	private static final long[] ZOBRIST_KEYS = new long[Cube.CUBE_STICKERS
+			* Cube.COLORS.length];
 
+	static {
+		Random random = new Random(1);
+		for (int i = 0; i < ZOBRIST_KEYS.length; i++) {
+			ZOBRIST_KEYS[i] = random.nextLong();
+		}
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
-	 * 
-	 * @param newCubeColor
+	 * Default constructor.
 	 */
-	private void move_8_0(cubeColor[][] newCubeColor) {
-		newCubeColor[2][3] = this.cubeState[1][3];
-		newCubeColor[2][4] = this.cubeState[1][4];
-		newCubeColor[2][5] = this.cubeState[1][5];
-
-		newCubeColor[3][3] = this.cubeState[2][3];
-		newCubeColor[3][4] = this.cubeState[2][4];
-		newCubeColor[3][5] = this.cubeState[2][5];
-
-		newCubeColor[4][3] = this.cubeState[3][3];
-		newCubeColor[4][4] = this.cubeState[3][4];
-		newCubeColor[4][5] = this.cubeState[3][5];
-
-		newCubeColor[1][3] = this.cubeState[4][3];
-		newCubeColor[1][4] = this.cubeState[4][4];
-		newCubeColor[1][5] = this.cubeState[4][5];
-
+	public Cube() {
+		// 6 faces and 9 squares on each face
+		stickers = new byte[Cube.CUBE_STICKERS];
+		next = new byte[Cube.CUBE_STICKERS];
+		setColors();
+		hash = hashStickers(stickers);
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Returns the color of a single square without building the whole state
+	 * array.
 	 * 
-	 * @param newCubeColor
+	 * @param face
+	 *            The face, 0 to 5.
+	 * @param square
+	 *            The square on that face, 0 to 8.
+	 * @return The color of the square.
 	 */
-	private void move_7_1(cubeColor[][] newCubeColor) {
-		newCubeColor[4][0] = this.cubeState[1][0];
-		newCubeColor[4][1] = this.cubeState[1][1];
-		newCubeColor[4][2] = this.cubeState[1][2];
-
-		newCubeColor[3][0] = this.cubeState[4][0];
-		newCubeColor[3][1] = this.cubeState[4][1];
-		newCubeColor[3][2] = this.cubeState[4][2];
-
-		newCubeColor[2][0] = this.cubeState[3][0];
-		newCubeColor[2][1] = this.cubeState[3][1];
-		newCubeColor[2][2] = this.cubeState[3][2];
-
-		newCubeColor[1][0] = this.cubeState[2][0];
-		newCubeColor[1][1] = this.cubeState[2][1];
-		newCubeColor[1][2] = this.cubeState[2][2];
-
-		newCubeColor[0][6] = this.cubeState[0][0];
-		newCubeColor[0][3] = this.cubeState[0][1];
-		newCubeColor[0][0] = this.cubeState[0][2];
-		newCubeColor[0][7] = this.cubeState[0][3];
-		newCubeColor[0][1] = this.cubeState[0][5];
-		newCubeColor[0][8] = this.cubeState[0][6];
-		newCubeColor[0][5] = this.cubeState[0][7];
-		newCubeColor[0][2] = this.cubeState[0][8];
+	public cubeColor getSquare(int face, int square) {
+		return COLORS[stickers[face * Cube.CUBE_SQUARES + square]];
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Builds the state of the cube as a face by square array. The array is
+	 * made on each call, so changing it does not change the cube.
 	 * 
-	 * @param newCubeColor
+	 * @return The state of the cube.
 	 */
-	private void move_7_0(cubeColor[][] newCubeColor) {
-		newCubeColor[2][0] = this.cubeState[1][0];
-		newCubeColor[2][1] = this.cubeState[1][1];
-		newCubeColor[2][2] = this.cubeState[1][2];
-
-		newCubeColor[3][0] = this.cubeState[2][0];
-		newCubeColor[3][1] = this.cubeState[2][1];
-		newCubeColor[3][2] = this.cubeState[2][2];
-
-		newCubeColor[4][0] = this.cubeState[3][0];
-		newCubeColor[4][1] = this.cubeState[3][1];
-		newCubeColor[4][2] = this.cubeState[3][2];
-
-		newCubeColor[1][0] = this.cubeState[4][0];
-		newCubeColor[1][1] = this.cubeState[4][1];
-		newCubeColor[1][2] = this.cubeState[4][2];
-
-		newCubeColor[0][2] = this.cubeState[0][0];
-		newCubeColor[0][5] = this.cubeState[0][1];
-		newCubeColor[0][8] = this.cubeState[0][2];
-		newCubeColor[0][1] = this.cubeState[0][3];
-		newCubeColor[0][7] = this.cubeState[0][5];
-		newCubeColor[0][0] = this.cubeState[0][6];
-		newCubeColor[0][3] = this.cubeState[0][7];
-		newCubeColor[0][6] = this.cubeState[0][8];
+	public cubeColor[][] getCubeState() {
+		return makeNewCube(this.stickers);
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Gives solvers the sticker array without copying it. The array must not
+	 * be changed, and it is replaced by the next move.
 	 * 
-	 * @param newCubeColor
+	 * @return The stickers, indexed face * 9 + square.
 	 */
-	private void move_6_1(cubeColor[][] newCubeColor) {
-		newCubeColor[0][6] = this.cubeState[2][8];
-		newCubeColor[0][7] = this.cubeState[2][5];
-		newCubeColor[0][8] = this.cubeState[2][2];
-
-		newCubeColor[4][0] = this.cubeState[0][6];
-		newCubeColor[4][3] = this.cubeState[0][7];
-		newCubeColor[4][6] = this.cubeState[0][8];
-
-		newCubeColor[5][2] = this.cubeState[4][0];
-		newCubeColor[5][1] = this.cubeState[4][3];
-		newCubeColor[5][0] = this.cubeState[4][6];
-
-		newCubeColor[2][8] = this.cubeState[5][2];
-		newCubeColor[2][5] = this.cubeState[5][1];
-		newCubeColor[2][2] = this.cubeState[5][0];
-
-		newCubeColor[1][2] = this.cubeState[1][0];
-		newCubeColor[1][5] = this.cubeState[1][1];
-		newCubeColor[1][8] = this.cubeState[1][2];
-		newCubeColor[1][1] = this.cubeState[1][3];
-		newCubeColor[1][7] = this.cubeState[1][5];
-		newCubeColor[1][0] = this.cubeState[1][6];
-		newCubeColor[1][3] = this.cubeState[1][7];
-		newCubeColor[1][6] = this.cubeState[1][8];
+	byte[] stickers() {
+		return stickers;
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Sets every sticker at once. The colours are not checked, so a cube set
+	 * this way may not be solvable.
 	 * 
-	 * @param newCubeColor
+	 * @param colors
+	 *            54 colour ordinals, indexed face * 9 + square.
 	 */
-	private void move_6_0(cubeColor[][] newCubeColor) {
-		newCubeColor[5][2] = this.cubeState[2][8];
-		newCubeColor[5][1] = this.cubeState[2][5];
-		newCubeColor[5][0] = this.cubeState[2][2];
-
-		newCubeColor[2][8] = this.cubeState[0][6];
-		newCubeColor[2][5] = this.cubeState[0][7];
-		newCubeColor[2][2] = this.cubeState[0][8];
-
-		newCubeColor[0][6] = this.cubeState[4][0];
-		newCubeColor[0][7] = this.cubeState[4][3];
-		newCubeColor[0][8] = this.cubeState[4][6];
-
-		newCubeColor[4][0] = this.cubeState[5][2];
-		newCubeColor[4][3] = this.cubeState[5][1];
-		newCubeColor[4][6] = this.cubeState[5][0];
-
-		newCubeColor[1][6] = this.cubeState[1][0];
-		newCubeColor[1][3] = this.cubeState[1][1];
-		newCubeColor[1][0] = this.cubeState[1][2];
-		newCubeColor[1][7] = this.cubeState[1][3];
-		newCubeColor[1][1] = this.cubeState[1][5];
-		newCubeColor[1][8] = this.cubeState[1][6];
-		newCubeColor[1][5] = this.cubeState[1][7];
-		newCubeColor[1][2] = this.cubeState[1][8];
+	void setStickers(byte[] colors) {
+		System.arraycopy(colors, 0, stickers, 0, Cube.CUBE_STICKERS);
+		for (int i = 0; i < Cube.CUBE_FACES; i++) {
+			countMismatches(i);
+		}
+		totalMismatches();
+		hash = hashStickers(stickers);
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Helper method to return a deep copy of the cubestate array. Makes
+	 * makeNewCube into a public method effectively.
 	 * 
-	 * @param newCubeColor
+	 * @return copyCubeState
 	 */
-	private void move_5_1(cubeColor[][] newCubeColor) {
-		newCubeColor[0][3] = this.cubeState[2][7];
-		newCubeColor[0][4] = this.cubeState[2][4];
-		newCubeColor[0][5] = this.cubeState[2][1];
-
-		newCubeColor[4][1] = this.cubeState[0][3];
-		newCubeColor[4][4] = this.cubeState[0][4];
-		newCubeColor[4][7] = this.cubeState[0][5];
-
-		newCubeColor[5][5] = this.cubeState[4][1];
-		newCubeColor[5][4] = this.cubeState[4][4];
-		newCubeColor[5][3] = this.cubeState[4][7];
-
-		newCubeColor[2][7] = this.cubeState[5][5];
-		newCubeColor[2][4] = this.cubeState[5][4];
-		newCubeColor[2][1] = this.cubeState[5][3];
+	public cubeColor[][] getCubeStateDeepCopy() {
+		cubeColor[][] copyCubeState = makeNewCube(this.stickers);
+		return copyCubeState;
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Method to move the cube. To change the cube, allow methods to turn one of
+	 * the slices on the top face either direction or the front face left or
+	 * right. This fully describes available moves.
 	 * 
-	 * @param newCubeColor
+	 * @throws IllegalArgumentException
+	 *             Either checks must be made the parameters are valid or this
+	 *             exception must be caught.
+	 * 
+	 * @param direction
+	 *            Either 0 for "left" or 1 for "right". For slices 1 to 3 0 is
+	 *            frontwards and 1 is backwards.
+	 * @param slice
+	 *            Range 1 to 9, 1 is left slice, 3 is right slice; 4 is front, 6
+	 *            is back; 7 is top of front face, 9 is bottom of front face.
 	 */
-	private void move_5_0(cubeColor[][] newCubeColor) {
-		newCubeColor[5][5] = this.cubeState[2][7];
-		newCubeColor[5][4] = this.cubeState[2][4];
-		newCubeColor[5][3] = this.cubeState[2][1];
-
-		newCubeColor[2][7] = this.cubeState[0][3];
-		newCubeColor[2][4] = this.cubeState[0][4];
-		newCubeColor[2][1] = this.cubeState[0][5];
-
-		newCubeColor[0][3] = this.cubeState[4][1];
-		newCubeColor[0][4] = this.cubeState[4][4];
-		newCubeColor[0][5] = this.cubeState[4][7];
-
-		newCubeColor[4][1] = this.cubeState[5][5];
-		newCubeColor[4][4] = this.cubeState[5][4];
-		newCubeColor[4][7] = this.cubeState[5][3];
+	public void changeCube(int direction, int slice) {
+		// Here we change the state of the cube by moving colors from one state
+		// to the next.
+		applyMove(MoveTable.moveId(direction, slice));
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Method to move the cube by move id, as numbered by MoveTable.
 	 * 
-	 * @param newCubeColor
+	 * @param move
+	 *            The move id, 0 to 17.
 	 */
-	private void move_4_1(cubeColor[][] newCubeColor) {
-		newCubeColor[0][0] = this.cubeState[2][6];
-		newCubeColor[0][1] = this.cubeState[2][3];
-		newCubeColor[0][2] = this.cubeState[2][0];
-
-		newCubeColor[4][2] = this.cubeState[0][0];
-		newCubeColor[4][5] = this.cubeState[0][1];
-		newCubeColor[4][8] = this.cubeState[0][2];
-
-		newCubeColor[5][8] = this.cubeState[4][2];
-		newCubeColor[5][7] = this.cubeState[4][5];
-		newCubeColor[5][6] = this.cubeState[4][8];
-
-		newCubeColor[2][6] = this.cubeState[5][8];
-		newCubeColor[2][3] = this.cubeState[5][7];
-		newCubeColor[2][0] = this.cubeState[5][6];
-
-		newCubeColor[3][6] = this.cubeState[3][0];
-		newCubeColor[3][3] = this.cubeState[3][1];
-		newCubeColor[3][0] = this.cubeState[3][2];
-		newCubeColor[3][7] = this.cubeState[3][3];
-		newCubeColor[3][1] = this.cubeState[3][5];
-		newCubeColor[3][8] = this.cubeState[3][6];
-		newCubeColor[3][5] = this.cubeState[3][7];
-		newCubeColor[3][2] = this.cubeState[3][8];
+	public void applyMove(int move) {
+		applyPermutation(MoveTable.PERMUTATIONS[move],
+				MoveTable.MOVED_STICKERS[move], MoveTable.CHANGED[move],
+				MoveTable.MOVED_CENTRES[move]);
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Makes a whole compiled list of moves in one pass over the stickers.
 	 * 
-	 * @param newCubeColor
+	 * @param sequence
+	 *            The moves.
 	 */
-	private void move_4_0(cubeColor[][] newCubeColor) {
-		newCubeColor[5][8] = this.cubeState[2][6];
-		newCubeColor[5][7] = this.cubeState[2][3];
-		newCubeColor[5][6] = this.cubeState[2][0];
-
-		newCubeColor[2][6] = this.cubeState[0][0];
-		newCubeColor[2][3] = this.cubeState[0][1];
-		newCubeColor[2][0] = this.cubeState[0][2];
-
-		newCubeColor[0][0] = this.cubeState[4][2];
-		newCubeColor[0][1] = this.cubeState[4][5];
-		newCubeColor[0][2] = this.cubeState[4][8];
-
-		newCubeColor[4][2] = this.cubeState[5][8];
-		newCubeColor[4][5] = this.cubeState[5][7];
-		newCubeColor[4][8] = this.cubeState[5][6];
-
-		newCubeColor[3][2] = this.cubeState[3][0];
-		newCubeColor[3][5] = this.cubeState[3][1];
-		newCubeColor[3][8] = this.cubeState[3][2];
-		newCubeColor[3][1] = this.cubeState[3][3];
-		newCubeColor[3][7] = this.cubeState[3][5];
-		newCubeColor[3][0] = this.cubeState[3][6];
-		newCubeColor[3][3] = this.cubeState[3][7];
-		newCubeColor[3][6] = this.cubeState[3][8];
+	public void applySequence(MoveSequence sequence) {
+		applyPermutation(sequence.permutation, sequence.movedStickers,
+				sequence.changed, sequence.movedCentres);
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Moves the stickers and brings the mismatch counts and hash up to date.
 	 * 
-	 * @param newCubeColor
+	 * @param perm
+	 *            The sticker permutation.
+	 * @param moved
+	 *            Every sticker perm changes.
+	 * @param changed
+	 *            The stickers perm changes on faces whose centre stays.
+	 * @param movedCentres
+	 *            The faces whose centre perm moves.
 	 */
-	private void move_3_1(cubeColor[][] newCubeColor) {
-		newCubeColor[3][6] = this.cubeState[0][2];
-		newCubeColor[3][3] = this.cubeState[0][5];
-		newCubeColor[3][0] = this.cubeState[0][8];
-
-		newCubeColor[0][2] = this.cubeState[1][2];
-		newCubeColor[0][5] = this.cubeState[1][5];
-		newCubeColor[0][8] = this.cubeState[1][8];
-
-		newCubeColor[1][2] = this.cubeState[5][2];
-		newCubeColor[1][5] = this.cubeState[5][5];
-		newCubeColor[1][8] = this.cubeState[5][8];
-
-		newCubeColor[5][2] = this.cubeState[3][6];
-		newCubeColor[5][5] = this.cubeState[3][3];
-		newCubeColor[5][8] = this.cubeState[3][0];
-
-		newCubeColor[4][2] = this.cubeState[4][0];
-		newCubeColor[4][5] = this.cubeState[4][1];
-		newCubeColor[4][8] = this.cubeState[4][2];
-		newCubeColor[4][1] = this.cubeState[4][3];
-		newCubeColor[4][7] = this.cubeState[4][5];
-		newCubeColor[4][0] = this.cubeState[4][6];
-		newCubeColor[4][3] = this.cubeState[4][7];
-		newCubeColor[4][6] = this.cubeState[4][8];
+	private void applyPermutation(byte[] perm, byte[] moved, byte[] changed,
+			byte[] movedCentres) {
+		MoveTable.apply(perm, stickers, next);
+		byte[] previous = stickers;
+		stickers = next;
+		next = previous;
+		updateMismatches(changed, movedCentres, previous);
+		for (byte index : moved) {
+			int key = index * Cube.COLORS.length;
+			hash ^= ZOBRIST_KEYS[key + previous[index]]
+					^ ZOBRIST_KEYS[key + stickers[index]];
+		}
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Works out the Zobrist hash of some stickers from scratch.
 	 * 
-	 * @param newCubeColor
+	 * @param colors
+	 *            54 colour ordinals, indexed face * 9 + square.
+	 * @return The hash.
 	 */
-	private void move_3_0(cubeColor[][] newCubeColor) {
-		newCubeColor[1][2] = this.cubeState[0][2];
-		newCubeColor[1][5] = this.cubeState[0][5];
-		newCubeColor[1][8] = this.cubeState[0][8];
-
-		newCubeColor[5][2] = this.cubeState[1][2];
-		newCubeColor[5][5] = this.cubeState[1][5];
-		newCubeColor[5][8] = this.cubeState[1][8];
-
-		newCubeColor[3][6] = this.cubeState[5][2];
-		newCubeColor[3][3] = this.cubeState[5][5];
-		newCubeColor[3][0] = this.cubeState[5][8];
-
-		newCubeColor[0][2] = this.cubeState[3][6];
-		newCubeColor[0][5] = this.cubeState[3][3];
-		newCubeColor[0][8] = this.cubeState[3][0];
-
-		newCubeColor[4][6] = this.cubeState[4][0];
-		newCubeColor[4][3] = this.cubeState[4][1];
-		newCubeColor[4][0] = this.cubeState[4][2];
-		newCubeColor[4][7] = this.cubeState[4][3];
-		newCubeColor[4][1] = this.cubeState[4][5];
-		newCubeColor[4][8] = this.cubeState[4][6];
-		newCubeColor[4][5] = this.cubeState[4][7];
-		newCubeColor[4][2] = this.cubeState[4][8];
+	static long hashStickers(byte[] colors) {
+		long result = 0;
+		for (int i = 0; i < Cube.CUBE_STICKERS; i++) {
+			result ^= ZOBRIST_KEYS[i * Cube.COLORS.length + colors[i]];
+		}
+		return result;
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * A 64 bit hash of the state, kept up to date by each move. Two cubes in
+	 * the same state always have the same hash.
 	 * 
-	 * @param newCubeColor
+	 * @return The hash.
 	 */
-	private void move_2_1(cubeColor[][] newCubeColor) {
-		newCubeColor[3][7] = this.cubeState[0][1];
-		newCubeColor[3][4] = this.cubeState[0][4];
-		newCubeColor[3][1] = this.cubeState[0][7];
-
-		newCubeColor[5][1] = this.cubeState[3][7];
-		newCubeColor[5][4] = this.cubeState[3][4];
-		newCubeColor[5][7] = this.cubeState[3][1];
-
-		newCubeColor[1][1] = this.cubeState[5][1];
-		newCubeColor[1][4] = this.cubeState[5][4];
-		newCubeColor[1][7] = this.cubeState[5][7];
-
-		newCubeColor[0][1] = this.cubeState[1][1];
-		newCubeColor[0][4] = this.cubeState[1][4];
-		newCubeColor[0][7] = this.cubeState[1][7];
+	public long getHash() {
+		return hash;
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
-	 * 
-	 * @param newCubeColor
+	 * Two cubes are equal when every sticker is the same. The hashes are
+	 * compared first, so cubes that differ are nearly always told apart
+	 * without looking at the stickers. A cube changes as it moves, so it
+	 * should not be moved while it is a key in a set or map.
 	 */
-	private void move_2_0(cubeColor[][] newCubeColor) {
-		newCubeColor[1][1] = this.cubeState[0][1];
-		newCubeColor[1][4] = this.cubeState[0][4];
-		newCubeColor[1][7] = this.cubeState[0][7];
-
-		newCubeColor[0][1] = this.cubeState[3][1];
-		newCubeColor[0][4] = this.cubeState[3][4];
-		newCubeColor[0][7] = this.cubeState[3][7];
-
-		newCubeColor[3][1] = this.cubeState[5][1];
-		newCubeColor[3][4] = this.cubeState[5][4];
-		newCubeColor[3][7] = this.cubeState[5][7];
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof Cube)) {
+			return false;
+		}
+		Cube cube = (Cube) other;
+		return hash == cube.hash && Arrays.equals(stickers, cube.stickers);
+	}
 
-		newCubeColor[5][1] = this.cubeState[1][1];
-		newCubeColor[5][4] = this.cubeState[1][4];
-		newCubeColor[5][7] = this.cubeState[1][7];
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Brings the mismatch counts up to date after a move. Only the stickers
+	 * the move changed are looked at, apart from faces whose centre moved,
+	 * which are counted again.
 	 * 
-	 * @param newCubeColor
+	 * @param changed
+	 *            The stickers changed on faces whose centre stayed.
+	 * @param movedCentres
+	 *            The faces whose centre moved.
+	 * @param previous
+	 *            The stickers before the move.
 	 */
-	private void move_1_1(cubeColor[][] newCubeColor) {
-		newCubeColor[3][8] = this.cubeState[0][0];
-		newCubeColor[3][5] = this.cubeState[0][3];
-		newCubeColor[3][2] = this.cubeState[0][6];
-
-		newCubeColor[5][0] = this.cubeState[3][8];
-		newCubeColor[5][3] = this.cubeState[3][5];
-		newCubeColor[5][6] = this.cubeState[3][2];
-
-		newCubeColor[1][0] = this.cubeState[5][0];
-		newCubeColor[1][3] = this.cubeState[5][3];
-		newCubeColor[1][6] = this.cubeState[5][6];
+	private void updateMismatches(byte[] changed, byte[] movedCentres,
+			byte[] previous) {
+		for (byte index : changed) {
+			int face = index / Cube.CUBE_SQUARES;
+			byte centre = stickers[face * Cube.CUBE_SQUARES + 4];
+			if (stickers[index] != centre) {
+				faceMismatches[face]++;
+			}
+			if (previous[index] != centre) {
+				faceMismatches[face]--;
+			}
+		}
+		for (byte face : movedCentres) {
+			countMismatches(face);
+		}
+		totalMismatches();
+	}
 
-		newCubeColor[0][0] = this.cubeState[1][0];
-		newCubeColor[0][3] = this.cubeState[1][3];
-		newCubeColor[0][6] = this.cubeState[1][6];
+	private void countMismatches(int face) {
+		int offset = face * Cube.CUBE_SQUARES;
+		byte centre = stickers[offset + 4];
+		byte count = 0;
+		for (int j = 0; j < Cube.CUBE_SQUARES; j++) {
+			if (stickers[offset + j] != centre) {
+				count++;
+			}
+		}
+		faceMismatches[face] = count;
+	}
 
-		newCubeColor[2][6] = this.cubeState[2][0];
-		newCubeColor[2][3] = this.cubeState[2][1];
-		newCubeColor[2][0] = this.cubeState[2][2];
-		newCubeColor[2][7] = this.cubeState[2][3];
-		newCubeColor[2][1] = this.cubeState[2][5];
-		newCubeColor[2][8] = this.cubeState[2][6];
-		newCubeColor[2][5] = this.cubeState[2][7];
-		newCubeColor[2][2] = this.cubeState[2][8];
+	private void totalMismatches() {
+		mismatches = 0;
+		solvedFaces = 0;
+		for (int i = 0; i < Cube.CUBE_FACES; i++) {
+			mismatches += faceMismatches[i];
+			if (faceMismatches[i] == 0) {
+				solvedFaces |= 1 << i;
+			}
+		}
 	}
 
 	/**
-	 * Hard coded method to move colors around for a given move.
+	 * Applies a list of moves in order. For a list used more than once,
+	 * applySequence with a compiled MoveSequence is quicker.
 	 * 
-	 * @param newCubeColor
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
 	 */
-	private void move_1_0(cubeColor[][] newCubeColor) {
-		newCubeColor[1][0] = this.cubeState[0][0];
-		newCubeColor[1][3] = this.cubeState[0][3];
-		newCubeColor[1][6] = this.cubeState[0][6];
-
-		newCubeColor[5][0] = this.cubeState[1][0];
-		newCubeColor[5][3] = this.cubeState[1][3];
-		newCubeColor[5][6] = this.cubeState[1][6];
-
-		newCubeColor[3][8] = this.cubeState[5][0];
-		newCubeColor[3][5] = this.cubeState[5][3];
-		newCubeColor[3][2] = this.cubeState[5][6];
-
-		newCubeColor[0][0] = this.cubeState[3][8];
-		newCubeColor[0][3] = this.cubeState[3][5];
-		newCubeColor[0][6] = this.cubeState[3][2];
-
-		newCubeColor[2][2] = this.cubeState[2][0];
-		newCubeColor[2][5] = this.cubeState[2][1];
-		newCubeColor[2][8] = this.cubeState[2][2];
-		newCubeColor[2][1] = this.cubeState[2][3];
-		newCubeColor[2][7] = this.cubeState[2][5];
-		newCubeColor[2][0] = this.cubeState[2][6];
-		newCubeColor[2][3] = this.cubeState[2][7];
-		newCubeColor[2][6] = this.cubeState[2][8];
+	public void applyMoves(int[] moves) {
+		for (int move : moves) {
+			applyMove(move);
+		}
 	}
 
 	/**
 	 * Copies a cube's state and returns the new cube state array.
 	 * 
-	 * @param currentCubeState
+	 * @param currentStickers
 	 * @return The new cube state array.
 	 */
-	private cubeColor[][] makeNewCube(cubeColor[][] currentCubeState) {
+	private cubeColor[][] makeNewCube(byte[] currentStickers) {
 		cubeColor[][] newCubeState = new cubeColor[Cube.CUBE_FACES][Cube.CUBE_SQUARES];
-		for (int i = 0; i < currentCubeState.length; i++) {
-			for (int j = 0; j < currentCubeState[i].length; j++) {
-				newCubeState[i][j] = currentCubeState[i][j];
+		for (int i = 0; i < newCubeState.length; i++) {
+			for (int j = 0; j < newCubeState[i].length; j++) {
+				newCubeState[i][j] = COLORS[currentStickers[i * Cube.CUBE_SQUARES + j]];
 			}
 		}
 		return newCubeState;
@@ -678,10 +341,10 @@ public class Cube {
 	 * Initialises the cube.
 	 */
 	private void setColors() {
-		for (int i = 0; i < cubeState.length; i++) {
-			cubeColor state = getColor(i);
-			for (int j = 0; j < cubeState[i].length; j++) {
-				cubeState[i][j] = state;
+		for (int i = 0; i < Cube.CUBE_FACES; i++) {
+			byte state = (byte) getColor(i).ordinal();
+			for (int j = 0; j < Cube.CUBE_SQUARES; j++) {
+				stickers[i * Cube.CUBE_SQUARES + j] = state;
 			}
 		}
 	}
@@ -722,42 +385,57 @@ public class Cube {
 
 	/**
 	 * Method to scramble the cube. Make a series of moves with random
-	 * parameters.
+	 * parameters, compiled so the stickers are moved only once. The moves
+	 * come from ThreadLocalRandom, so cubes on many threads can scramble at
+	 * once without waiting on one shared generator.
 	 */
 	public void scramble() {
-		int numOfMoves = 100;
-		for (int i = 0; i < numOfMoves; i++) {
-			int nextDirection = (int) (Math.random() * 2);
-			if (nextDirection != 0 && nextDirection != 1) {
-				//System.out.println("bad direction: " + nextDirection);
-				continue;
-			}
-			int nextSlice = (int) (Math.random() * 9 + 1);
-			if (nextSlice < 1 || nextSlice > 9) {
-				//System.out.println("bad slice number: " + nextSlice);
-				continue;
-			}
-			changeCube(nextDirection, nextSlice);
-		}
-		//System.out.println("end of scramble");
+		scramble(SCRAMBLER);
 	}
 
 	/**
-	 * Method to determine if the cube is in a solved state. Check each face
-	 * matches the centre color.
+	 * Method to scramble the cube with random moves from a scrambler, such
+	 * as one made with a seed so the scramble can be repeated.
+	 *
+	 * @param scrambler
+	 */
+	public void scramble(Scrambler scrambler) {
+		applySequence(new MoveSequence(scrambler
+				.randomMoves(Scrambler.DEFAULT_LENGTH)));
+	}
+
+	/**
+	 * Method to determine if the cube is in a solved state, with every face
+	 * matching its centre color. The count of stickers that do not match is
+	 * kept as the cube moves, so this does not look at the stickers.
 	 */
 	public boolean isSolved() {
-		for (int i = 0; i < cubeState.length; i++) {
-			// Need the centre color, the (i,4) square.
-			cubeColor state = cubeState[i][4];
-			for (int j = 0; j < cubeState[i].length; j++) {
-				if (cubeState[i][j] != state) {
-					return false;
-				}
-			}
-		}
-		// If this is reached, all faces are the correct color.
-		return true;
+		return mismatches == 0;
+	}
+
+	/**
+	 * @param face
+	 *            The face, 0 to 5.
+	 * @return True if every square on the face matches its centre.
+	 */
+	public boolean isFaceSolved(int face) {
+		return (solvedFaces & (1 << face)) != 0;
+	}
+
+	/**
+	 * @return A bit for each face, bit i being set when face i is all one
+	 *         color.
+	 */
+	public int getSolvedFaces() {
+		return solvedFaces;
+	}
+
+	/**
+	 * @return The number of stickers that differ from the centre of their
+	 *         face, 0 for a solved cube.
+	 */
+	public int getMismatchCount() {
+		return mismatches;
 	}
 
 	/**
@@ -767,19 +445,16 @@ public class Cube {
 	 * @return returnString the printed representation of the cube state.
 	 */
 	public String printCube() {
-		String returnString = new String("");
-		if (cubeState == null) {
-			return returnString;
+		StringBuilder returnString = new StringBuilder();
+		if (stickers == null) {
+			return returnString.toString();
 		}
-		for (int i = 0; i < cubeState.length; i++) {
-			returnString = returnString.concat("The " + i + "th side:\n");
-			// System.out.println();
-			for (int j = 0; j < cubeState[i].length; j++) {
-				returnString = returnString
-						.concat(cubeState[i][j].toString() + '\n');
-				// System.out.println();
+		for (int i = 0; i < Cube.CUBE_FACES; i++) {
+			returnString.append("The ").append(i).append("th side:\n");
+			for (int j = 0; j < Cube.CUBE_SQUARES; j++) {
+				returnString.append(getSquare(i, j)).append('\n');
 			}
 		}
-		return returnString;
+		return returnString.toString();
 	}
 }
@@ -0,0 +1,449 @@
+package cubesolver;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shows moves turning smoothly on a canvas.
+ *
+ * The animator keeps its own copy of the cube, which follows the real one a
+ * few moves behind. Moves made on the real cube are queued here and shown
+ * one step at a time, a step being one move or several on the same axis
+ * turning together, such as a turn of the whole cube. A thread of its own
+ * draws the cube FRAME_RATE times a second straight to the canvas through a
+ * BufferStrategy, with the turning layer part of the way round, so nothing
+ * waits for the event dispatch thread.
+ *
+ * How far a layer has turned depends on the time passed rather than the
+ * number of frames drawn, so a slow frame is skipped rather than making
+ * the animation late. Moves waiting in the queue make the current one turn
+ * faster, and moves more than MAX_BACKLOG behind are made at once without
+ * being shown, so the picture never falls far behind the real cube.
+ *
+ * @author Andrew
+ *
+ */
+public class CubeAnimator implements Runnable {
+	/**
+	 * Frames drawn a second while something is turning.
+	 */
+	public static final int FRAME_RATE = 60;
+	/**
+	 * Most steps waiting before the oldest are made without being shown.
+	 */
+	public static final int MAX_BACKLOG = 24;
+	private static final long FRAME_NANOS = 1000000000L / FRAME_RATE;
+	/**
+	 * Time for one step when nothing else is waiting.
+	 */
+	private static final long STEP_NANOS = 200000000L;
+	/**
+	 * Each this many steps waiting adds the normal speed again.
+	 */
+	private static final int SPEED_UP = 3;
+	/**
+	 * How often the picture is shown again when nothing is turning, in case
+	 * the window was covered.
+	 */
+	private static final long IDLE_MILLIS = 100;
+
+	/**
+	 * Position of each of the 27 cubies, each coordinate -1, 0 or 1. x goes
+	 * right, y up and z towards the front face, as in Symmetry.
+	 */
+	private static final int[][] CUBIES = new int[27][3];
+	/**
+	 * The directions a cubie's faces point.
+	 */
+	private static final int[][] NORMALS = { { 1, 0, 0 }, { -1, 0, 0 },
+			{ 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 } };
+	/**
+	 * The sticker on each face of each cubie, or -1 for an inside face.
+	 */
+	private static final int[][] FACE_STICKERS = new int[27][NORMALS.length];
+	/**
+	 * Things closer to the viewer are further along this direction. The
+	 * three faces it points out of are the ones CubeRenderer draws.
+	 */
+	private static final int[] VIEW = { -1, 2, 1 };
+
+	static {
+		for (int i = 0; i < CUBIES.length; i++) {
+			CUBIES[i][0] = i % 3 - 1;
+			CUBIES[i][1] = i / 3 % 3 - 1;
+			CUBIES[i][2] = i / 9 - 1;
+			Arrays.fill(FACE_STICKERS[i], -1);
+		}
+		for (int sticker = 0; sticker < MoveTable.STICKERS; sticker++) {
+			int[] p = Symmetry.position(sticker);
+			int cubie = (p[0] + 1) + (p[1] + 1) * 3 + (p[2] + 1) * 9;
+			for (int d = 0; d < NORMALS.length; d++) {
+				if (NORMALS[d][0] == p[3] && NORMALS[d][1] == p[4]
+						&& NORMALS[d][2] == p[5]) {
+					FACE_STICKERS[cubie][d] = sticker;
+				}
+			}
+		}
+	}
+
+	private final Canvas canvas;
+	private final BlockingQueue<int[]> queue = new LinkedBlockingQueue<int[]>();
+	/**
+	 * Stickers to show at once, dropping anything queued, or null.
+	 */
+	private final AtomicReference<byte[]> jump = new AtomicReference<byte[]>();
+	private volatile boolean running;
+	private Thread thread;
+	private Color background = Color.WHITE;
+
+	// Used only by the animation thread.
+	private final Cube shown = new Cube();
+	private int[] step;
+	private double progress;
+	private volatile long frames;
+	private volatile long skipped;
+	private final double[] centre = new double[3];
+	private final double[][] centres = new double[CUBIES.length][3];
+	private final double[] depths = new double[CUBIES.length];
+	private final double[] angles = new double[CUBIES.length];
+	private final int[] order = new int[CUBIES.length];
+	private final double[] normal = new double[3];
+	private final double[] across = new double[3];
+	private final double[] down = new double[3];
+	private final double[] turned = new double[3];
+	private final int[] xs = new int[4];
+	private final int[] ys = new int[4];
+
+	/**
+	 * @param canvas
+	 *            Where to draw. Must be showing when start is called.
+	 */
+	public CubeAnimator(Canvas canvas) {
+		this.canvas = canvas;
+	}
+
+	/**
+	 * Takes over drawing the canvas, starting from the cube as it is now.
+	 * Paint events are ignored while the animator runs.
+	 *
+	 * @param cube
+	 */
+	public synchronized void start(Cube cube) {
+		if (running) {
+			return;
+		}
+		queue.clear();
+		jump.set(cube.stickers().clone());
+		background = canvas.getBackground() == null ? Color.WHITE : canvas
+				.getBackground();
+		canvas.setIgnoreRepaint(true);
+		if (canvas.getBufferStrategy() == null) {
+			canvas.createBufferStrategy(2);
+		}
+		running = true;
+		thread = new Thread(this, "Cube animator");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops drawing and gives the canvas back to its paint method, which
+	 * should be asked to repaint.
+	 *
+	 * @throws InterruptedException
+	 */
+	public synchronized void stop() throws InterruptedException {
+		if (!running) {
+			return;
+		}
+		running = false;
+		thread.interrupt();
+		thread.join();
+		thread = null;
+		canvas.setIgnoreRepaint(false);
+	}
+
+	/**
+	 * @return True between start and stop.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Queues moves to be shown one after another.
+	 *
+	 * @param moves
+	 *            Move ids, already made on the real cube.
+	 */
+	public void play(int... moves) {
+		for (int move : moves) {
+			queue.add(new int[] { move });
+		}
+	}
+
+	/**
+	 * Queues moves to be shown turning together, such as the three slices
+	 * of a whole cube turn.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the moves are not all on one axis.
+	 *
+	 * @param moves
+	 *            Move ids, already made on the real cube.
+	 */
+	public void turn(int... moves) {
+		for (int move : moves) {
+			if (MoveGeometry.AXIS[move] != MoveGeometry.AXIS[moves[0]]) {
+				throw new IllegalArgumentException("Moves turned together "
+						+ "must be on one axis.");
+			}
+		}
+		if (moves.length > 0) {
+			queue.add(moves.clone());
+		}
+	}
+
+	/**
+	 * Shows the cube as it is now at once, dropping any moves still to be
+	 * shown. Used when the cube changes other than by moves.
+	 *
+	 * @param cube
+	 */
+	public void show(Cube cube) {
+		queue.clear();
+		jump.set(cube.stickers().clone());
+	}
+
+	/**
+	 * @return Frames drawn since the animator was made.
+	 */
+	public long getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * @return Frames not drawn because the one before was late.
+	 */
+	public long getSkippedFrames() {
+		return skipped;
+	}
+
+	@Override
+	public void run() {
+		long last = System.nanoTime();
+		long nextFrame = last;
+		while (running) {
+			byte[] stickers = jump.getAndSet(null);
+			if (stickers != null) {
+				shown.setStickers(stickers);
+				step = null;
+				progress = 0;
+			}
+			long now = System.nanoTime();
+			advance(now - last);
+			last = now;
+			render();
+			try {
+				if (step == null) {
+					// Nothing to turn, so wait for a move rather than
+					// drawing the same picture.
+					step = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+					progress = 0;
+					last = System.nanoTime();
+					nextFrame = last;
+					continue;
+				}
+				nextFrame += FRAME_NANOS;
+				long wait = nextFrame - System.nanoTime();
+				if (wait > 0) {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				} else {
+					// Behind: start again from now rather than drawing
+					// frames quickly to catch up.
+					skipped += -wait / FRAME_NANOS;
+					nextFrame = System.nanoTime();
+				}
+			} catch (InterruptedException e) {
+				running = false;
+			}
+		}
+	}
+
+	/**
+	 * Turns the current step on by the time passed, finishing it and
+	 * starting the next as need be.
+	 */
+	private void advance(long nanos) {
+		if (step == null) {
+			step = queue.poll();
+			progress = 0;
+			if (step == null) {
+				return;
+			}
+		}
+		int backlog = queue.size();
+		while (backlog > MAX_BACKLOG) {
+			finish();
+			step = queue.poll();
+			backlog--;
+		}
+		progress += (double) nanos / STEP_NANOS * (1 + backlog / SPEED_UP);
+		while (step != null && progress >= 1) {
+			finish();
+			progress -= 1;
+			step = queue.poll();
+		}
+		if (step == null) {
+			progress = 0;
+		}
+	}
+
+	private void finish() {
+		for (int move : step) {
+			shown.changeCube(MoveTable.direction(move), MoveTable.slice(move));
+		}
+	}
+
+	/**
+	 * Draws one frame and shows it, drawing again if the buffer was lost.
+	 */
+	private void render() {
+		if (!canvas.isDisplayable()) {
+			return;
+		}
+		BufferStrategy strategy = canvas.getBufferStrategy();
+		if (strategy == null) {
+			return;
+		}
+		do {
+			do {
+				Graphics g = strategy.getDrawGraphics();
+				try {
+					draw(g, canvas.getWidth(), canvas.getHeight());
+				} finally {
+					g.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		Toolkit.getDefaultToolkit().sync();
+		frames++;
+	}
+
+	/**
+	 * Draws the cube with the current step part of the way round. The
+	 * cubies are drawn furthest first. While a layer turns, the cube is in
+	 * three slabs along the axis that do not overlap, so the slabs are drawn
+	 * in order and the cubies in each by how close their centres are.
+	 */
+	void draw(Graphics g, int width, int height) {
+		g.setColor(background);
+		g.fillRect(0, 0, width, height);
+		int axis = step == null ? 0 : MoveGeometry.AXIS[step[0]];
+		for (int c = 0; c < CUBIES.length; c++) {
+			angles[c] = 0;
+			if (step != null) {
+				for (int move : step) {
+					if (CUBIES[c][axis] == MoveGeometry.LAYER[move]) {
+						angles[c] = MoveGeometry.SIGN[move] * progress * Math.PI / 2;
+					}
+				}
+			}
+			for (int i = 0; i < 3; i++) {
+				centre[i] = CUBIES[c][i];
+			}
+			rotate(centre, axis, angles[c], centres[c]);
+			double slab = step == null ? 0 : CUBIES[c][axis] * VIEW[axis];
+			depths[c] = slab * 100 + dot(centres[c]);
+			order[c] = c;
+		}
+		for (int i = 1; i < order.length; i++) {
+			int c = order[i];
+			int j = i;
+			for (; j > 0 && depths[order[j - 1]] > depths[c]; j--) {
+				order[j] = order[j - 1];
+			}
+			order[j] = c;
+		}
+		byte[] stickers = shown.stickers();
+		for (int c : order) {
+			for (int d = 0; d < NORMALS.length; d++) {
+				int sticker = FACE_STICKERS[c][d];
+				if (sticker < 0 && step == null) {
+					// Inside faces only show while a layer is turning.
+					continue;
+				}
+				drawFace(g, c, d, axis,
+						sticker < 0 ? Color.BLACK
+								: CubeRenderer.COLORS[stickers[sticker]]);
+			}
+		}
+	}
+
+	private void drawFace(Graphics g, int cubie, int face, int axis,
+			Color color) {
+		int[] n = NORMALS[face];
+		// Two directions along the face, at right angles to its normal.
+		int a = n[0] != 0 ? 1 : 0;
+		int b = n[2] != 0 ? 1 : 2;
+		for (int i = 0; i < 3; i++) {
+			turned[i] = n[i];
+		}
+		rotate(turned, axis, angles[cubie], normal);
+		if (dot(normal) <= 0) {
+			return;
+		}
+		for (int i = 0; i < 3; i++) {
+			turned[i] = i == a ? 1 : 0;
+		}
+		rotate(turned, axis, angles[cubie], across);
+		for (int i = 0; i < 3; i++) {
+			turned[i] = i == b ? 1 : 0;
+		}
+		rotate(turned, axis, angles[cubie], down);
+		double[] c = centres[cubie];
+		for (int k = 0; k < 4; k++) {
+			double s = k == 0 || k == 3 ? -0.5 : 0.5;
+			double t = k < 2 ? -0.5 : 0.5;
+			double x = c[0] + normal[0] / 2 + across[0] * s + down[0] * t;
+			double y = c[1] + normal[1] / 2 + across[1] * s + down[1] * t;
+			double z = c[2] + normal[2] / 2 + across[2] * s + down[2] * t;
+			xs[k] = CubeRenderer.LEFT
+					+ (int) Math.round(CubeRenderer.SCALE * (3 + x + z));
+			ys[k] = CubeRenderer.TOP
+					+ (int) Math.round(CubeRenderer.SCALE * (4.5 - x + z - y));
+		}
+		g.setColor(color);
+		g.fillPolygon(xs, ys, 4);
+		g.setColor(Color.BLACK);
+		g.drawPolygon(xs, ys, 4);
+	}
+
+	private static double dot(double[] v) {
+		return v[0] * VIEW[0] + v[1] * VIEW[1] + v[2] * VIEW[2];
+	}
+
+	/**
+	 * Turns a vector anticlockwise about an axis, looking down the axis
+	 * towards the origin.
+	 */
+	private static void rotate(double[] v, int axis, double angle,
+			double[] result) {
+		int a = (axis + 1) % 3;
+		int b = (axis + 2) % 3;
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+		result[axis] = v[axis];
+		result[a] = v[a] * cos - v[b] * sin;
+		result[b] = v[a] * sin + v[b] * cos;
+	}
+}
@@ -1,9 +1,10 @@
 package cubesolver;
 
-import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Point;
-import java.awt.Polygon;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
 
 /**
  * Frame to hold the CubeSolver program.
@@ -16,15 +17,9 @@ public class CubeFrame extends javax.swing.JFrame {
      */
     public CubeFrame() {
         initComponents();
+        animator = new CubeAnimator(canvas1);
         cube = new Cube();
         checkScrambled();
-        //56 points to map out the cube
-        vertices = new Point[56];
-        initVertices();
-        //made up of 27 squares
-        vertexList = new int[27][4];
-        initVertexList();
-
     }
 
     /**
@@ -47,8 +42,15 @@ public class CubeFrame extends javax.swing.JFrame {
             @Override
             public void paint(Graphics g)
             {
-                super.paint(g);
-                drawCube(g);
+                renderer.paint(g, this, cube);
+            }
+
+            @Override
+            public void update(Graphics g)
+            {
+                // the renderer covers the whole canvas, so clearing it first
+                // would only flicker
+                paint(g);
             }
         };
         jButton7 = new javax.swing.JButton();
@@ -72,6 +74,9 @@ public class CubeFrame extends javax.swing.JFrame {
         jButton25 = new javax.swing.JButton();
         jButton26 = new javax.swing.JButton();
         jButton27 = new javax.swing.JButton();
+        jCheckBox1 = new javax.swing.JCheckBox();
+        jButton28 = new javax.swing.JButton();
+        jLabel2 = new javax.swing.JLabel();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
         setTitle("Cube Solver");
@@ -282,6 +287,28 @@ public class CubeFrame extends javax.swing.JFrame {
                                     }
                                 });
 
+        jCheckBox1.setText("Animate");
+        jCheckBox1.setToolTipText("Show each move turning");
+        jCheckBox1.setName("animateCheckBox");
+        jCheckBox1.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jCheckBox1ActionPerformed(evt);
+            }
+        });
+
+        jButton28.setText("Solve");
+        jButton28.setToolTipText("Find the shortest solution and make it");
+        jButton28.setName("solveButton");
+        jButton28.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jButton28ActionPerformed(evt);
+            }
+        });
+
+        jLabel2.setText(" ");
+        jLabel2.setToolTipText("How the solve is going");
+        jLabel2.setName("progressLabel");
+
                                 javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
                                 getContentPane().setLayout(layout);
                                 layout.setHorizontalGroup(
@@ -336,7 +363,10 @@ public class CubeFrame extends javax.swing.JFrame {
                                                     .addComponent(jButton2)
                                                     .addComponent(jLabel1)
                                                     .addComponent(jButton9)
-                                                    .addComponent(jButton6)))))
+                                                    .addComponent(jButton6)
+                                                    .addComponent(jCheckBox1)
+                                                    .addComponent(jButton28)
+                                                    .addComponent(jLabel2)))))
                                     .addGroup(layout.createSequentialGroup()
                                         .addGap(53, 53, 53)
                                         .addComponent(jButton22)
@@ -405,6 +435,12 @@ public class CubeFrame extends javax.swing.JFrame {
                                                         .addComponent(jButton9)))
                                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                                                 .addComponent(jButton6)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(jCheckBox1)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(jButton28)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(jLabel2)
                                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)))
                                         .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                                             .addComponent(jButton22)
@@ -425,43 +461,34 @@ public class CubeFrame extends javax.swing.JFrame {
 
     private void jButton3ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton3ActionPerformed
         checkScrambled();
-        cube.changeCube(1, 1);
-        cube.changeCube(1, 2);
-        cube.changeCube(1, 3);
-        drawCube(canvas1.getGraphics());
+        cube.applySequence(ROTATE_UP);
+        showMoves(true, ROTATE_UP.getMoves());
     }//GEN-LAST:event_jButton3ActionPerformed
 
     private void jButton4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton4ActionPerformed
         checkScrambled();
-        cube.changeCube(0, 4);
-        cube.changeCube(0, 5);
-        cube.changeCube(0, 6);
-        drawCube(canvas1.getGraphics());
+        cube.applySequence(TILT_DOWN);
+        showMoves(true, TILT_DOWN.getMoves());
     }//GEN-LAST:event_jButton4ActionPerformed
 
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
         checkScrambled();
-        cube.changeCube(0, 7);
-        cube.changeCube(0, 8);
-        cube.changeCube(0, 9);
-        drawCube(canvas1.getGraphics());
+        cube.applySequence(ROTATE_LEFT);
+        showMoves(true, ROTATE_LEFT.getMoves());
     }//GEN-LAST:event_jButton1ActionPerformed
 
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
         checkScrambled();
-        cube.changeCube(1, 7);
-        cube.changeCube(1, 8);
-        cube.changeCube(1, 9);
-        drawCube(canvas1.getGraphics());
+        cube.applySequence(ROTATE_RIGHT);
+        showMoves(true, ROTATE_RIGHT.getMoves());
     }//GEN-LAST:event_jButton2ActionPerformed
 
     private void jButton5ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton5ActionPerformed
         //scramble button
-        if (cube != null) {
-            cube.scramble();
-        }
+        int[] moves = SCRAMBLER.randomMoves(Scrambler.DEFAULT_LENGTH);
+        cube.applySequence(new MoveSequence(moves));
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, moves);
     }//GEN-LAST:event_jButton5ActionPerformed
 
     private void jButton6ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton6ActionPerformed
@@ -471,135 +498,158 @@ public class CubeFrame extends javax.swing.JFrame {
 
     private void jButton7ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton7ActionPerformed
         checkScrambled();
-        cube.changeCube(1, 4);
-        cube.changeCube(1, 5);
-        cube.changeCube(1, 6);
-        drawCube(canvas1.getGraphics());
+        cube.applySequence(TILT_UP);
+        showMoves(true, TILT_UP.getMoves());
     }//GEN-LAST:event_jButton7ActionPerformed
 
     private void jButton8ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton8ActionPerformed
         checkScrambled();
-        cube.changeCube(0, 1);
-        cube.changeCube(0, 2);
-        cube.changeCube(0, 3);
-        drawCube(canvas1.getGraphics());
+        cube.applySequence(ROTATE_DOWN);
+        showMoves(true, ROTATE_DOWN.getMoves());
     }//GEN-LAST:event_jButton8ActionPerformed
 
     private void jButton9ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton9ActionPerformed
         //reset button
         cube = new Cube();
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showCube();
     }//GEN-LAST:event_jButton9ActionPerformed
 
     private void jButton13ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton13ActionPerformed
         cube.changeCube(1, 1);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 1));
     }//GEN-LAST:event_jButton13ActionPerformed
 
     private void jButton14ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton14ActionPerformed
         cube.changeCube(1, 2);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 2));
     }//GEN-LAST:event_jButton14ActionPerformed
 
     private void jButton15ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton15ActionPerformed
         cube.changeCube(1, 3);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 3));
     }//GEN-LAST:event_jButton15ActionPerformed
 
     private void jButton10ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton10ActionPerformed
         cube.changeCube(1, 4);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 4));
     }//GEN-LAST:event_jButton10ActionPerformed
 
     private void jButton11ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton11ActionPerformed
         cube.changeCube(1, 5);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 5));
     }//GEN-LAST:event_jButton11ActionPerformed
 
     private void jButton12ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton12ActionPerformed
         cube.changeCube(1, 6);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 6));
     }//GEN-LAST:event_jButton12ActionPerformed
 
     private void jButton19ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton19ActionPerformed
         cube.changeCube(1, 7);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 7));
     }//GEN-LAST:event_jButton19ActionPerformed
 
     private void jButton20ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton20ActionPerformed
         cube.changeCube(1, 8);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 8));
     }//GEN-LAST:event_jButton20ActionPerformed
 
     private void jButton21ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton21ActionPerformed
         cube.changeCube(1, 9);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(1, 9));
     }//GEN-LAST:event_jButton21ActionPerformed
 
     private void jButton16ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton16ActionPerformed
         cube.changeCube(0, 7);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 7));
     }//GEN-LAST:event_jButton16ActionPerformed
 
     private void jButton17ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton17ActionPerformed
         cube.changeCube(0, 8);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 8));
     }//GEN-LAST:event_jButton17ActionPerformed
 
     private void jButton18ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton18ActionPerformed
         cube.changeCube(0, 9);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 9));
     }//GEN-LAST:event_jButton18ActionPerformed
 
     private void jButton22ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton22ActionPerformed
         cube.changeCube(0, 4);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 4));
     }//GEN-LAST:event_jButton22ActionPerformed
 
     private void jButton23ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton23ActionPerformed
         cube.changeCube(0, 5);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 5));
     }//GEN-LAST:event_jButton23ActionPerformed
 
     private void jButton24ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton24ActionPerformed
         cube.changeCube(0, 6);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 6));
     }//GEN-LAST:event_jButton24ActionPerformed
 
     private void jButton25ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton25ActionPerformed
         cube.changeCube(0, 1);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 1));
     }//GEN-LAST:event_jButton25ActionPerformed
 
     private void jButton26ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton26ActionPerformed
         cube.changeCube(0, 2);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 2));
     }//GEN-LAST:event_jButton26ActionPerformed
 
     private void jButton27ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton27ActionPerformed
         cube.changeCube(0, 3);
         checkScrambled();
-        drawCube(canvas1.getGraphics());
+        showMoves(false, MoveTable.moveId(0, 3));
     }//GEN-LAST:event_jButton27ActionPerformed
 
+    private void jCheckBox1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jCheckBox1ActionPerformed
+        //animate check box
+        if (jCheckBox1.isSelected()) {
+            animator.start(cube);
+        } else {
+            try {
+                animator.stop();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            showCube();
+        }
+    }//GEN-LAST:event_jCheckBox1ActionPerformed
+
+    private void jButton28ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton28ActionPerformed
+        //solve button, which stops the search while it runs
+        if (solveWorker != null) {
+            solveWorker.finish();
+        } else if (cube.isSolved()) {
+            jLabel2.setText("Already solved");
+        } else {
+            solveWorker = new SolveWorker(cube);
+            jButton28.setText("Stop");
+            solveWorker.execute();
+        }
+    }//GEN-LAST:event_jButton28ActionPerformed
+
     /**
      * @param args the command line arguments
      */
@@ -663,6 +713,7 @@ public class CubeFrame extends javax.swing.JFrame {
     private javax.swing.JButton jButton25;
     private javax.swing.JButton jButton26;
     private javax.swing.JButton jButton27;
+    private javax.swing.JButton jButton28;
     private javax.swing.JButton jButton3;
     private javax.swing.JButton jButton4;
     private javax.swing.JButton jButton5;
@@ -670,12 +721,27 @@ public class CubeFrame extends javax.swing.JFrame {
     private javax.swing.JButton jButton7;
     private javax.swing.JButton jButton8;
     private javax.swing.JButton jButton9;
+    private javax.swing.JCheckBox jCheckBox1;
     private javax.swing.JLabel jLabel1;
+    private javax.swing.JLabel jLabel2;
     // End of variables declaration//GEN-END:variables
     // My variables
     private Cube cube;
-    private Point[] vertices;
-    private int[][] vertexList;
+    // whole cube turns, each compiled from three slice moves so the
+    // stickers only move once
+    private static final MoveSequence ROTATE_UP = MoveSequence.of(1, 1, 1, 2, 1, 3);
+    private static final MoveSequence ROTATE_DOWN = MoveSequence.of(0, 1, 0, 2, 0, 3);
+    private static final MoveSequence TILT_UP = MoveSequence.of(1, 4, 1, 5, 1, 6);
+    private static final MoveSequence TILT_DOWN = MoveSequence.of(0, 4, 0, 5, 0, 6);
+    private static final MoveSequence ROTATE_LEFT = MoveSequence.of(0, 7, 0, 8, 0, 9);
+    private static final MoveSequence ROTATE_RIGHT = MoveSequence.of(1, 7, 1, 8, 1, 9);
+    // keeps the picture of the cube between repaints
+    private final CubeRenderer renderer = new CubeRenderer();
+    // turns the moves on the canvas when Animate is ticked
+    private CubeAnimator animator;
+    // the solve running in the background, or null
+    private SolveWorker solveWorker;
+    private static final Scrambler SCRAMBLER = new Scrambler();
 
     /**
      * Helper method to check if the cube is solved yet.
@@ -688,213 +754,128 @@ public class CubeFrame extends javax.swing.JFrame {
         }
     }
 
-    private void drawCube(Graphics g) {
-        // here go through the list of vertices drawing a polygon
-        for (int i = 0; i < vertexList.length; i++) {//int[] i : vertexList) {
-            int[] xVals = new int[vertexList[i].length];
-            int[] yVals = new int[vertexList[i].length];
-            for (int j = 0; j < 4; j++) {
-                xVals[j] = 80 + 30 * (int) vertices[vertexList[i][j]].getX();
-                yVals[j] = 20 + 30 * (int) vertices[vertexList[i][j]].getY();
-            }
-            Polygon p = new Polygon(xVals, yVals, 4);
-            int face = 0, square = 0;
-            if (i < 9) {
-                face = 0;
-                square = i;
-            } else if (i < 18) {
-                face = 2;
-                square = i - 9;
-            } else {
-                face = 1;
-                square = i - 18;
-            }
-            cubeColor c = cube.cubeState[face][square];
-            Color nextColor = getColor(c);
-            g.setColor(nextColor);
-            g.fillPolygon(p);
-            g.setColor(Color.BLACK);
-            g.drawPolygon(p);
+    /**
+     * Shows moves just made on the cube, turning them if animation is on.
+     * @param together true to turn the moves at once, as for a whole cube
+     * turn, or false to turn them one after another
+     * @param moves the move ids
+     */
+    private void showMoves(boolean together, int... moves) {
+        cancelSolve();
+        if (!animator.isRunning()) {
+            canvas1.repaint();
+        } else if (together) {
+            animator.turn(moves);
+        } else {
+            animator.play(moves);
         }
     }
 
-    private void initVertexList() {
-        vertexList[0][0] = 0;
-        vertexList[0][1] = 1;
-        vertexList[0][2] = 5;
-        vertexList[0][3] = 4;
-        vertexList[1][0] = 1;
-        vertexList[1][1] = 2;
-        vertexList[1][2] = 6;
-        vertexList[1][3] = 5;
-        vertexList[2][0] = 2;
-        vertexList[2][1] = 3;
-        vertexList[2][2] = 7;
-        vertexList[2][3] = 6;
-        vertexList[3][0] = 4;
-        vertexList[3][1] = 5;
-        vertexList[3][2] = 9;
-        vertexList[3][3] = 8;
-        vertexList[4][0] = 5;
-        vertexList[4][1] = 6;
-        vertexList[4][2] = 10;
-        vertexList[4][3] = 9;
-        vertexList[5][0] = 6;
-        vertexList[5][1] = 7;
-        vertexList[5][2] = 11;
-        vertexList[5][3] = 10;
-        vertexList[6][0] = 8;
-        vertexList[6][1] = 9;
-        vertexList[6][2] = 13;
-        vertexList[6][3] = 12;
-        vertexList[7][0] = 9;
-        vertexList[7][1] = 10;
-        vertexList[7][2] = 14;
-        vertexList[7][3] = 13;
-        vertexList[8][0] = 10;
-        vertexList[8][1] = 11;
-        vertexList[8][2] = 15;
-        vertexList[8][3] = 14;
-        vertexList[9][0] = 0;
-        vertexList[9][1] = 4;
-        vertexList[9][2] = 17;
-        vertexList[9][3] = 16;
-        vertexList[10][0] = 4;
-        vertexList[10][1] = 8;
-        vertexList[10][2] = 18;
-        vertexList[10][3] = 17;
-        vertexList[11][0] = 8;
-        vertexList[11][1] = 12;
-        vertexList[11][2] = 19;
-        vertexList[11][3] = 18;
-        vertexList[12][0] = 16;
-        vertexList[12][1] = 17;
-        vertexList[12][2] = 24;
-        vertexList[12][3] = 23;
-        vertexList[13][0] = 17;
-        vertexList[13][1] = 18;
-        vertexList[13][2] = 25;
-        vertexList[13][3] = 24;
-        vertexList[14][0] = 18;
-        vertexList[14][1] = 19;
-        vertexList[14][2] = 26;
-        vertexList[14][3] = 25;
-        vertexList[15][0] = 23;
-        vertexList[15][1] = 24;
-        vertexList[15][2] = 31;
-        vertexList[15][3] = 30;
-        vertexList[16][0] = 24;
-        vertexList[16][1] = 25;
-        vertexList[16][2] = 32;
-        vertexList[16][3] = 31;
-        vertexList[17][0] = 25;
-        vertexList[17][1] = 26;
-        vertexList[17][2] = 33;
-        vertexList[17][3] = 32;
-        vertexList[18][0] = 12;
-        vertexList[18][1] = 13;
-        vertexList[18][2] = 20;
-        vertexList[18][3] = 19;
-        vertexList[19][0] = 13;
-        vertexList[19][1] = 14;
-        vertexList[19][2] = 21;
-        vertexList[19][3] = 20;
-        vertexList[20][0] = 14;
-        vertexList[20][1] = 15;
-        vertexList[20][2] = 22;
-        vertexList[20][3] = 21;
-        vertexList[21][0] = 19;
-        vertexList[21][1] = 20;
-        vertexList[21][2] = 27;
-        vertexList[21][3] = 26;
-        vertexList[22][0] = 20;
-        vertexList[22][1] = 21;
-        vertexList[22][2] = 28;
-        vertexList[22][3] = 27;
-        vertexList[23][0] = 21;
-        vertexList[23][1] = 22;
-        vertexList[23][2] = 29;
-        vertexList[23][3] = 28;
-        vertexList[24][0] = 26;
-        vertexList[24][1] = 27;
-        vertexList[24][2] = 34;
-        vertexList[24][3] = 33;
-        vertexList[25][0] = 27;
-        vertexList[25][1] = 28;
-        vertexList[25][2] = 35;
-        vertexList[25][3] = 34;
-        vertexList[26][0] = 28;
-        vertexList[26][1] = 29;
-        vertexList[26][2] = 36;
-        vertexList[26][3] = 35;
+    /**
+     * Shows the cube as it is now, without turning anything.
+     */
+    private void showCube() {
+        cancelSolve();
+        if (animator.isRunning()) {
+            animator.show(cube);
+        } else {
+            renderer.invalidate();
+            canvas1.repaint();
+        }
     }
 
-    private void initVertices() {
-        vertices[0] = new Point(0, 3);
-        vertices[1] = new Point(1, 2);
-        vertices[2] = new Point(2, 1);
-        vertices[3] = new Point(3, 0);
-        vertices[4] = new Point(1, 4);
-        vertices[5] = new Point(2, 3);
-        vertices[6] = new Point(3, 2);
-        vertices[7] = new Point(4, 1);
-        vertices[8] = new Point(2, 5);
-        vertices[9] = new Point(3, 4);
-        vertices[10] = new Point(4, 3);
-        vertices[11] = new Point(5, 2);
-        vertices[12] = new Point(3, 6);
-        vertices[13] = new Point(4, 5);
-        vertices[14] = new Point(5, 4);
-        vertices[15] = new Point(6, 3);
-        vertices[16] = new Point(0, 4);
-        vertices[17] = new Point(1, 5);
-        vertices[18] = new Point(2, 6);
-        vertices[19] = new Point(3, 7);
-        vertices[20] = new Point(4, 6);
-        vertices[21] = new Point(5, 5);
-        vertices[22] = new Point(6, 4);
-        vertices[23] = new Point(0, 5);
-        vertices[24] = new Point(1, 6);
-        vertices[25] = new Point(2, 7);
-        vertices[26] = new Point(3, 8);
-        vertices[27] = new Point(4, 7);
-        vertices[28] = new Point(5, 6);
-        vertices[29] = new Point(6, 5);
-        vertices[30] = new Point(0, 6);
-        vertices[31] = new Point(1, 7);
-        vertices[32] = new Point(2, 8);
-        vertices[33] = new Point(3, 9);
-        vertices[34] = new Point(4, 8);
-        vertices[35] = new Point(5, 7);
-        vertices[36] = new Point(6, 6);
+    /**
+     * Stops any solve in the background and forgets it, since the cube it
+     * was solving has changed.
+     */
+    private void cancelSolve() {
+        if (solveWorker != null) {
+            SolveWorker worker = solveWorker;
+            solveWorker = null;
+            worker.cancel(true);
+            jButton28.setText("Solve");
+            jLabel2.setText("Solve cancelled");
+        }
     }
 
-    private Color getColor(cubeColor c) {
-        Color newColor;
-        switch (c) {
-            case WHITE:
-                newColor = Color.WHITE;
-                break;
-            case RED:
-                newColor = Color.RED;
-                break;
-            case BLUE:
-                newColor = Color.BLUE;
-                break;
-            case ORANGE:
-                newColor = Color.ORANGE;
-                break;
-            case GREEN:
-                newColor = Color.GREEN;
-                break;
-            case YELLOW:
-                newColor = Color.YELLOW;
-                break;
-            default:
-                newColor = Color.WHITE;
-                break;
+    /**
+     * Solves a copy of the cube away from the event thread. A two phase
+     * solution is found first, in milliseconds, then the optimal solver
+     * looks for anything shorter, reporting the depth it has reached and
+     * its speed as it goes. Only the solution comes back to the event
+     * thread, where it is made on the cube.
+     */
+    private class SolveWorker extends SwingWorker<int[], String> {
+        private final Cube start = new Cube();
+        private volatile int[] best;
+        private volatile boolean stopped;
 
+        SolveWorker(Cube cube) {
+            start.setStickers(cube.stickers().clone());
+        }
+
+        /**
+         * Stops looking for a shorter solution and uses the best so far.
+         */
+        void finish() {
+            stopped = true;
+            cancel(true);
+        }
+
+        @Override
+        protected int[] doInBackground() {
+            publish("Finding a solution...");
+            best = new TwoPhaseSolver().solve(start);
+            publish(best.length + " moves found, loading tables...");
+            OptimalSolver optimal = new OptimalSolver();
+            final long begin = System.nanoTime();
+            optimal.setProgressListener(new OptimalSolver.ProgressListener() {
+                @Override
+                public void progress(int depth, long nodes) {
+                    double seconds = Math.max(System.nanoTime() - begin, 1) / 1e9;
+                    publish(String.format("%d moves found, trying %d, %.1fM nodes/s",
+                            best.length, depth, nodes / seconds / 1e6));
+                }
+            });
+            int[] shorter = optimal.solve(start, best.length - 1);
+            return shorter == null ? best : shorter;
+        }
+
+        @Override
+        protected void process(List<String> chunks) {
+            if (solveWorker == this) {
+                jLabel2.setText(chunks.get(chunks.size() - 1));
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (solveWorker != this) {
+                // cancelled because the cube changed
+                return;
+            }
+            solveWorker = null;
+            jButton28.setText("Solve");
+            int[] solution;
+            try {
+                solution = get();
+            } catch (CancellationException ex) {
+                solution = stopped ? best : null;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                jLabel2.setText("Cannot solve: " + ex.getCause().getMessage());
+                return;
+            }
+            if (solution == null) {
+                jLabel2.setText("Solve cancelled");
+                return;
+            }
+            cube.applySequence(new MoveSequence(solution));
+            checkScrambled();
+            showMoves(false, solution);
+            jLabel2.setText("Solved in " + solution.length + " moves");
         }
-        return newColor;
     }
 }
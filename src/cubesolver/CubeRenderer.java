@@ -0,0 +1,202 @@
+package cubesolver;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Draws the top, left and front faces of a cube.
+ *
+ * The outline of each sticker on the screen never changes, so the outlines
+ * are worked out once. A renderer keeps its own picture of the cube in an
+ * image. Each time it is painted it redraws only the stickers whose colours
+ * have changed since the last time, then copies the whole image to the
+ * screen at once, so a half drawn cube is never seen. The image is made
+ * again, and every sticker drawn, when the component changes size.
+ *
+ * A renderer is meant for the event dispatch thread. The static drawCube
+ * needs no window and no renderer, so it can draw straight into an image.
+ *
+ * @author Andrew
+ *
+ */
+public class CubeRenderer {
+	/**
+	 * Number of stickers drawn: nine each on the top, left and front faces.
+	 */
+	public static final int VISIBLE_STICKERS = 27;
+	/**
+	 * Pixels to each step of the grid, and where the grid starts.
+	 */
+	static final int SCALE = 30;
+	static final int LEFT = 80;
+	static final int TOP = 20;
+	/**
+	 * Points of the grid the stickers are drawn on.
+	 */
+	private static final int[][] VERTICES = { { 0, 3 }, { 1, 2 }, { 2, 1 },
+			{ 3, 0 }, { 1, 4 }, { 2, 3 }, { 3, 2 }, { 4, 1 }, { 2, 5 },
+			{ 3, 4 }, { 4, 3 }, { 5, 2 }, { 3, 6 }, { 4, 5 }, { 5, 4 },
+			{ 6, 3 }, { 0, 4 }, { 1, 5 }, { 2, 6 }, { 3, 7 }, { 4, 6 },
+			{ 5, 5 }, { 6, 4 }, { 0, 5 }, { 1, 6 }, { 2, 7 }, { 3, 8 },
+			{ 4, 7 }, { 5, 6 }, { 6, 5 }, { 0, 6 }, { 1, 7 }, { 2, 8 },
+			{ 3, 9 }, { 4, 8 }, { 5, 7 }, { 6, 6 } };
+	/**
+	 * The four grid points around each sticker, top face first, then left,
+	 * then front, each in square order.
+	 */
+	private static final int[][] CORNERS = { { 0, 1, 5, 4 }, { 1, 2, 6, 5 },
+			{ 2, 3, 7, 6 }, { 4, 5, 9, 8 }, { 5, 6, 10, 9 }, { 6, 7, 11, 10 },
+			{ 8, 9, 13, 12 }, { 9, 10, 14, 13 }, { 10, 11, 15, 14 },
+			{ 0, 4, 17, 16 }, { 4, 8, 18, 17 }, { 8, 12, 19, 18 },
+			{ 16, 17, 24, 23 }, { 17, 18, 25, 24 }, { 18, 19, 26, 25 },
+			{ 23, 24, 31, 30 }, { 24, 25, 32, 31 }, { 25, 26, 33, 32 },
+			{ 12, 13, 20, 19 }, { 13, 14, 21, 20 }, { 14, 15, 22, 21 },
+			{ 19, 20, 27, 26 }, { 20, 21, 28, 27 }, { 21, 22, 29, 28 },
+			{ 26, 27, 34, 33 }, { 27, 28, 35, 34 }, { 28, 29, 36, 35 } };
+	/**
+	 * The faces drawn, in the order of CORNERS.
+	 */
+	private static final int[] FACES = { 0, 2, 1 };
+	/**
+	 * Colour of each cubeColor, by ordinal.
+	 */
+	static final Color[] COLORS = { Color.WHITE, Color.RED,
+			Color.BLUE, Color.ORANGE, Color.GREEN, Color.YELLOW };
+	private static final Polygon[] POLYGONS = new Polygon[VISIBLE_STICKERS];
+	/**
+	 * Index in Cube's stickers of each sticker drawn.
+	 */
+	private static final int[] STICKERS = new int[VISIBLE_STICKERS];
+
+	static {
+		for (int i = 0; i < VISIBLE_STICKERS; i++) {
+			int[] x = new int[4];
+			int[] y = new int[4];
+			for (int j = 0; j < 4; j++) {
+				x[j] = LEFT + SCALE * VERTICES[CORNERS[i][j]][0];
+				y[j] = TOP + SCALE * VERTICES[CORNERS[i][j]][1];
+			}
+			POLYGONS[i] = new Polygon(x, y, 4);
+			STICKERS[i] = FACES[i / 9] * 9 + i % 9;
+		}
+	}
+
+	private BufferedImage buffer;
+	/**
+	 * Colour of each sticker in the buffer, or -1 if it needs drawing.
+	 */
+	private final byte[] drawn = new byte[VISIBLE_STICKERS];
+
+	public CubeRenderer() {
+		invalidate();
+	}
+
+	/**
+	 * Draws every sticker of the cube.
+	 *
+	 * @param g
+	 *            Where to draw.
+	 * @param cube
+	 *            The cube to draw.
+	 */
+	public static void drawCube(Graphics g, Cube cube) {
+		byte[] stickers = cube.stickers();
+		for (int i = 0; i < VISIBLE_STICKERS; i++) {
+			fillSticker(g, i, stickers[STICKERS[i]]);
+		}
+		drawOutlines(g);
+	}
+
+	/**
+	 * Brings the picture up to date with the cube and copies it to the
+	 * component.
+	 *
+	 * @param g
+	 *            The component's graphics, as passed to paint.
+	 * @param component
+	 *            Where the cube is shown. Its size and background are used.
+	 * @param cube
+	 *            The cube to draw.
+	 */
+	public void paint(Graphics g, Component component, Cube cube) {
+		int width = Math.max(component.getWidth(), 1);
+		int height = Math.max(component.getHeight(), 1);
+		if (buffer == null || buffer.getWidth() != width
+				|| buffer.getHeight() != height) {
+			buffer = createBuffer(component, width, height);
+		}
+		Graphics bufferGraphics = buffer.getGraphics();
+		try {
+			update(bufferGraphics, cube);
+		} finally {
+			bufferGraphics.dispose();
+		}
+		g.drawImage(buffer, 0, 0, null);
+	}
+
+	/**
+	 * Makes every sticker be drawn again next time, as if the buffer had
+	 * been lost.
+	 */
+	public void invalidate() {
+		Arrays.fill(drawn, (byte) -1);
+	}
+
+	/**
+	 * Fills the stickers that have changed colour. Filling can cover part of
+	 * a neighbour's outline, so if anything changed all the outlines are
+	 * drawn again, which is much quicker than filling.
+	 *
+	 * @return The number of stickers filled.
+	 */
+	int update(Graphics g, Cube cube) {
+		byte[] stickers = cube.stickers();
+		int count = 0;
+		for (int i = 0; i < VISIBLE_STICKERS; i++) {
+			byte color = stickers[STICKERS[i]];
+			if (drawn[i] != color) {
+				fillSticker(g, i, color);
+				drawn[i] = color;
+				count++;
+			}
+		}
+		if (count > 0) {
+			drawOutlines(g);
+		}
+		return count;
+	}
+
+	private BufferedImage createBuffer(Component component, int width,
+			int height) {
+		GraphicsConfiguration config = component.getGraphicsConfiguration();
+		BufferedImage image = config == null ? new BufferedImage(width,
+				height, BufferedImage.TYPE_INT_RGB) : config
+				.createCompatibleImage(width, height);
+		Graphics g = image.getGraphics();
+		try {
+			g.setColor(component.getBackground());
+			g.fillRect(0, 0, width, height);
+		} finally {
+			g.dispose();
+		}
+		invalidate();
+		return image;
+	}
+
+	private static void fillSticker(Graphics g, int sticker, byte color) {
+		g.setColor(COLORS[color]);
+		g.fillPolygon(POLYGONS[sticker]);
+	}
+
+	private static void drawOutlines(Graphics g) {
+		g.setColor(Color.BLACK);
+		for (Polygon polygon : POLYGONS) {
+			g.drawPolygon(polygon);
+		}
+	}
+}
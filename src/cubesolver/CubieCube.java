@@ -0,0 +1,594 @@
+package cubesolver;
+
+/**
+ * Holds the cube as its 8 corner and 12 edge pieces rather than stickers,
+ * which is the form the solvers search over. Centres are not stored: the
+ * cube is always taken in the centre frame described in Rotations.
+ *
+ * Corner positions are numbered URF, UFL, ULB, UBR, DFR, DLF, DBL, DRB and
+ * edge positions UR, UF, UL, UB, DR, DF, DL, DB, FR, FL, BL, BR, using U for
+ * face 0, F for face 1, L for face 2, B for face 3, R for face 4 and D for
+ * face 5. cp[i] is the corner sitting in position i and co[i] how far it is
+ * twisted clockwise, and ep and eo do the same for edges.
+ *
+ * @author Andrew
+ *
+ */
+public class CubieCube {
+	public static final int CORNERS = 8;
+	public static final int EDGES = 12;
+	/**
+	 * Number of corner twists, 3 to the power 7.
+	 */
+	public static final int TWISTS = 2187;
+	/**
+	 * Number of corner permutations, 8 factorial.
+	 */
+	public static final int CORNER_PERMS = 40320;
+	/**
+	 * Number of ways to place and flip 6 edges, 12 * 11 * 10 * 9 * 8 * 7 *
+	 * 2^6.
+	 */
+	public static final int EDGE_SUBSETS = 665280 * 64;
+	/**
+	 * Number of edge permutations, 12 factorial.
+	 */
+	public static final int EDGE_PERMS = 479001600;
+
+	/**
+	 * Sticker indices of each corner position, starting with the sticker on
+	 * face 0 or 5 and going clockwise.
+	 */
+	static final int[][] CORNER_FACELETS = { { 8, 36, 11 }, { 6, 9, 20 },
+			{ 0, 18, 29 }, { 2, 27, 38 }, { 47, 17, 42 }, { 45, 26, 15 },
+			{ 51, 35, 24 }, { 53, 44, 33 } };
+	/**
+	 * Sticker indices of each edge position.
+	 */
+	static final int[][] EDGE_FACELETS = { { 5, 37 }, { 7, 10 }, { 3, 19 },
+			{ 1, 28 }, { 50, 43 }, { 46, 16 }, { 48, 25 }, { 52, 34 },
+			{ 14, 39 }, { 12, 23 }, { 32, 21 }, { 30, 41 } };
+
+	/**
+	 * The effect of each centre frame move, indexed by move id.
+	 */
+	static final CubieCube[] MOVES = new CubieCube[MoveTable.MOVE_COUNT];
+
+	static {
+		byte[] solved = new byte[MoveTable.STICKERS];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			solved[i] = (byte) (i / 9);
+		}
+		byte[] moved = new byte[MoveTable.STICKERS];
+		for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+			MoveTable.apply(Rotations.framePermutation(move), solved, moved);
+			MOVES[move] = fromStickers(moved);
+		}
+	}
+
+	final byte[] cp = new byte[CORNERS];
+	final byte[] co = new byte[CORNERS];
+	final byte[] ep = new byte[EDGES];
+	final byte[] eo = new byte[EDGES];
+
+	/**
+	 * Makes a solved cube.
+	 */
+	public CubieCube() {
+		for (int i = 0; i < CORNERS; i++) {
+			cp[i] = (byte) i;
+		}
+		for (int i = 0; i < EDGES; i++) {
+			ep[i] = (byte) i;
+		}
+	}
+
+	/**
+	 * Makes a copy of another cube.
+	 *
+	 * @param other
+	 */
+	public CubieCube(CubieCube other) {
+		set(other);
+	}
+
+	/**
+	 * Copies another cube into this one.
+	 *
+	 * @param other
+	 */
+	public void set(CubieCube other) {
+		System.arraycopy(other.cp, 0, cp, 0, CORNERS);
+		System.arraycopy(other.co, 0, co, 0, CORNERS);
+		System.arraycopy(other.ep, 0, ep, 0, EDGES);
+		System.arraycopy(other.eo, 0, eo, 0, EDGES);
+	}
+
+	/**
+	 * Reads the pieces off stickers in the centre frame, that is with the
+	 * color of face i's centre having ordinal i.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a corner or edge has colors no piece has.
+	 *
+	 * @param stickers
+	 *            Sticker colors indexed face * 9 + square.
+	 * @return The pieces.
+	 */
+	public static CubieCube fromStickers(byte[] stickers) {
+		CubieCube cube = new CubieCube();
+		for (int i = 0; i < CORNERS; i++) {
+			int[] facelets = CORNER_FACELETS[i];
+			int twist = 0;
+			while (twist < 3 && stickers[facelets[twist]] != 0
+					&& stickers[facelets[twist]] != 5) {
+				twist++;
+			}
+			if (twist == 3) {
+				throw new IllegalArgumentException("Corner " + i
+						+ " has no top or bottom color.");
+			}
+			int top = stickers[facelets[twist]];
+			int first = stickers[facelets[(twist + 1) % 3]];
+			int second = stickers[facelets[(twist + 2) % 3]];
+			int corner = 0;
+			// The top or bottom color has to match too, or a corner with a
+			// sticker from the other face would be taken as real.
+			while (corner < CORNERS
+					&& (CORNER_FACELETS[corner][0] / 9 != top
+							|| CORNER_FACELETS[corner][1] / 9 != first || CORNER_FACELETS[corner][2] / 9 != second)) {
+				corner++;
+			}
+			if (corner == CORNERS) {
+				throw new IllegalArgumentException("Corner " + i
+						+ " has colors no corner has.");
+			}
+			cube.cp[i] = (byte) corner;
+			cube.co[i] = (byte) twist;
+		}
+		for (int i = 0; i < EDGES; i++) {
+			int first = stickers[EDGE_FACELETS[i][0]];
+			int second = stickers[EDGE_FACELETS[i][1]];
+			int edge = 0;
+			int flip = -1;
+			for (; edge < EDGES; edge++) {
+				int home0 = EDGE_FACELETS[edge][0] / 9;
+				int home1 = EDGE_FACELETS[edge][1] / 9;
+				if (home0 == first && home1 == second) {
+					flip = 0;
+					break;
+				}
+				if (home0 == second && home1 == first) {
+					flip = 1;
+					break;
+				}
+			}
+			if (flip < 0) {
+				throw new IllegalArgumentException("Edge " + i
+						+ " has colors no edge has.");
+			}
+			cube.ep[i] = (byte) edge;
+			cube.eo[i] = (byte) flip;
+		}
+		return cube;
+	}
+
+	/**
+	 * Writes the stickers of this cube in the centre frame.
+	 *
+	 * @param stickers
+	 *            54 sticker colors indexed face * 9 + square.
+	 */
+	public void toStickers(byte[] stickers) {
+		for (int face = 0; face < 6; face++) {
+			stickers[face * 9 + 4] = (byte) face;
+		}
+		for (int i = 0; i < CORNERS; i++) {
+			int[] home = CORNER_FACELETS[cp[i]];
+			for (int k = 0; k < 3; k++) {
+				stickers[CORNER_FACELETS[i][(k + co[i]) % 3]] = (byte) (home[k] / 9);
+			}
+		}
+		for (int i = 0; i < EDGES; i++) {
+			int[] home = EDGE_FACELETS[ep[i]];
+			for (int k = 0; k < 2; k++) {
+				stickers[EDGE_FACELETS[i][(k + eo[i]) % 2]] = (byte) (home[k] / 9);
+			}
+		}
+	}
+
+	/**
+	 * Sets result to the cube a followed by the cube b. result must not be a
+	 * or b.
+	 *
+	 * @param a
+	 * @param b
+	 * @param result
+	 */
+	public static void multiply(CubieCube a, CubieCube b, CubieCube result) {
+		for (int i = 0; i < CORNERS; i++) {
+			result.cp[i] = a.cp[b.cp[i]];
+			result.co[i] = (byte) ((a.co[b.cp[i]] + b.co[i]) % 3);
+		}
+		for (int i = 0; i < EDGES; i++) {
+			result.ep[i] = a.ep[b.ep[i]];
+			result.eo[i] = (byte) ((a.eo[b.ep[i]] + b.eo[i]) & 1);
+		}
+	}
+
+	/**
+	 * Sets result to the cube that undoes cube, so cube followed by result is
+	 * solved. result must not be cube.
+	 *
+	 * @param cube
+	 * @param result
+	 */
+	public static void invert(CubieCube cube, CubieCube result) {
+		for (int i = 0; i < CORNERS; i++) {
+			result.cp[cube.cp[i]] = (byte) i;
+			result.co[cube.cp[i]] = (byte) ((3 - cube.co[i]) % 3);
+		}
+		for (int i = 0; i < EDGES; i++) {
+			result.ep[cube.ep[i]] = (byte) i;
+			result.eo[cube.ep[i]] = cube.eo[i];
+		}
+	}
+
+	/**
+	 * Makes a centre frame move on this cube.
+	 *
+	 * @param move
+	 *            A move id.
+	 */
+	public void move(int move) {
+		CubieCube before = new CubieCube(this);
+		multiply(before, MOVES[move], this);
+	}
+
+	/**
+	 * @return The corner twist coordinate, 0 to 2186.
+	 */
+	public int getTwist() {
+		int twist = 0;
+		for (int i = 0; i < CORNERS - 1; i++) {
+			twist = twist * 3 + co[i];
+		}
+		return twist;
+	}
+
+	/**
+	 * Sets the corner twists from a twist coordinate. The last corner is
+	 * twisted so the total twist is a multiple of 3.
+	 *
+	 * @param twist
+	 */
+	public void setTwist(int twist) {
+		int total = 0;
+		for (int i = CORNERS - 2; i >= 0; i--) {
+			co[i] = (byte) (twist % 3);
+			total += co[i];
+			twist /= 3;
+		}
+		co[CORNERS - 1] = (byte) ((3 - total % 3) % 3);
+	}
+
+	/**
+	 * @return The corner permutation coordinate, 0 to 40319.
+	 */
+	public int getCornerPerm() {
+		return rank(cp, CORNERS, CORNERS);
+	}
+
+	/**
+	 * Places the corners from a corner permutation coordinate.
+	 *
+	 * @param index
+	 */
+	public void setCornerPerm(int index) {
+		unrank(index, cp, CORNERS, CORNERS);
+	}
+
+	/**
+	 * Works out where the six edges first to first + 5 are and how they are
+	 * flipped.
+	 *
+	 * @param first
+	 *            0 for the edges UR to DF, 6 for the edges DL to BR.
+	 * @return The coordinate, 0 to EDGE_SUBSETS - 1.
+	 */
+	public int getEdgeSubset(int first) {
+		byte[] positions = new byte[6];
+		int flips = 0;
+		for (int i = 0; i < EDGES; i++) {
+			int tracked = ep[i] - first;
+			if (tracked >= 0 && tracked < 6) {
+				positions[tracked] = (byte) i;
+				flips |= eo[i] << tracked;
+			}
+		}
+		return rank(positions, 6, EDGES) * 64 + flips;
+	}
+
+	/**
+	 * Places the six edges first to first + 5 from a coordinate. The other
+	 * edges fill the remaining positions unflipped in no particular order.
+	 *
+	 * @param first
+	 * @param index
+	 */
+	public void setEdgeSubset(int first, int index) {
+		byte[] positions = new byte[6];
+		unrank(index / 64, positions, 6, EDGES);
+		int flips = index % 64;
+		boolean[] used = new boolean[EDGES];
+		for (int j = 0; j < 6; j++) {
+			ep[positions[j]] = (byte) (first + j);
+			eo[positions[j]] = (byte) ((flips >> j) & 1);
+			used[positions[j]] = true;
+		}
+		int other = (first + 6) % EDGES;
+		for (int i = 0; i < EDGES; i++) {
+			if (!used[i]) {
+				ep[i] = (byte) other++;
+				eo[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return The edge flip coordinate, 0 to 2047.
+	 */
+	public int getFlip() {
+		int flip = 0;
+		for (int i = 0; i < EDGES - 1; i++) {
+			flip = flip * 2 + eo[i];
+		}
+		return flip;
+	}
+
+	/**
+	 * Sets the edge flips from a flip coordinate. The last edge is flipped
+	 * so the total flip is even.
+	 *
+	 * @param flip
+	 */
+	public void setFlip(int flip) {
+		int total = 0;
+		for (int i = EDGES - 2; i >= 0; i--) {
+			eo[i] = (byte) (flip & 1);
+			total += eo[i];
+			flip >>= 1;
+		}
+		eo[EDGES - 1] = (byte) (total & 1);
+	}
+
+	/**
+	 * Works out which four positions hold the middle layer edges FR, FL, BL
+	 * and BR, in any order.
+	 *
+	 * @return The slice coordinate, 0 to 494. A solved cube gives 494.
+	 */
+	public int getSlice() {
+		int slice = 0;
+		int found = 0;
+		for (int i = 0; i < EDGES; i++) {
+			if (ep[i] >= 8) {
+				found++;
+				slice += choose(i, found);
+			}
+		}
+		return slice;
+	}
+
+	/**
+	 * Places the middle layer edges from a slice coordinate. The other edges
+	 * fill the remaining positions in order.
+	 *
+	 * @param slice
+	 */
+	public void setSlice(int slice) {
+		boolean[] inSlice = new boolean[EDGES];
+		for (int k = 4; k >= 1; k--) {
+			int position = k - 1;
+			while (choose(position + 1, k) <= slice) {
+				position++;
+			}
+			inSlice[position] = true;
+			slice -= choose(position, k);
+		}
+		int other = 0;
+		int middle = 8;
+		for (int i = 0; i < EDGES; i++) {
+			ep[i] = (byte) (inSlice[i] ? middle++ : other++);
+		}
+	}
+
+	/**
+	 * Only meaningful once the middle layer edges are in the middle layer.
+	 *
+	 * @return The permutation of the edges UR to DB, 0 to 40319.
+	 */
+	public int getUDEdgePerm() {
+		return rank(ep, 8, 8);
+	}
+
+	/**
+	 * Places the edges UR to DB from a coordinate, and the middle layer
+	 * edges home.
+	 *
+	 * @param index
+	 */
+	public void setUDEdgePerm(int index) {
+		unrank(index, ep, 8, 8);
+		for (int i = 8; i < EDGES; i++) {
+			ep[i] = (byte) i;
+		}
+	}
+
+	/**
+	 * Only meaningful once the middle layer edges are in the middle layer.
+	 *
+	 * @return The permutation of the middle layer edges, 0 to 23.
+	 */
+	public int getSlicePerm() {
+		byte[] middle = new byte[4];
+		for (int i = 0; i < 4; i++) {
+			middle[i] = (byte) (ep[8 + i] - 8);
+		}
+		return rank(middle, 4, 4);
+	}
+
+	/**
+	 * Places the middle layer edges from a coordinate, and the other edges
+	 * home.
+	 *
+	 * @param index
+	 */
+	public void setSlicePerm(int index) {
+		byte[] middle = new byte[4];
+		unrank(index, middle, 4, 4);
+		for (int i = 0; i < 8; i++) {
+			ep[i] = (byte) i;
+		}
+		for (int i = 0; i < 4; i++) {
+			ep[8 + i] = (byte) (middle[i] + 8);
+		}
+	}
+
+	/**
+	 * @return The permutation of all 12 edges, 0 to EDGE_PERMS - 1.
+	 */
+	public int getEdgePerm() {
+		return rank(ep, EDGES, EDGES);
+	}
+
+	/**
+	 * Places every edge from an edge permutation coordinate.
+	 *
+	 * @param index
+	 */
+	public void setEdgePerm(int index) {
+		unrank(index, ep, EDGES, EDGES);
+	}
+
+	/**
+	 * @return True if every piece is home and unturned.
+	 */
+	public boolean isSolved() {
+		for (int i = 0; i < CORNERS; i++) {
+			if (cp[i] != i || co[i] != 0) {
+				return false;
+			}
+		}
+		for (int i = 0; i < EDGES; i++) {
+			if (ep[i] != i || eo[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks the pieces could come from a real cube: every piece is there
+	 * once, the corner twists add up to a multiple of 3, the edge flips add
+	 * up to a multiple of 2, and the corners and edges are both swapped an
+	 * even or both an odd number of times.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the cube could not be solved.
+	 */
+	public void verify() {
+		int corners = 0;
+		int twist = 0;
+		for (int i = 0; i < CORNERS; i++) {
+			corners |= 1 << cp[i];
+			twist += co[i];
+		}
+		int edges = 0;
+		int flip = 0;
+		for (int i = 0; i < EDGES; i++) {
+			edges |= 1 << ep[i];
+			flip += eo[i];
+		}
+		if (corners != (1 << CORNERS) - 1 || edges != (1 << EDGES) - 1) {
+			throw new IllegalArgumentException("A piece is missing.");
+		}
+		if (twist % 3 != 0) {
+			throw new IllegalArgumentException("A corner is twisted.");
+		}
+		if (flip % 2 != 0) {
+			throw new IllegalArgumentException("An edge is flipped.");
+		}
+		if (parity(cp) != parity(ep)) {
+			throw new IllegalArgumentException("Two pieces are swapped.");
+		}
+	}
+
+	/**
+	 * @param perm
+	 * @return 1 if the permutation is odd, 0 if it is even.
+	 */
+	static int parity(byte[] perm) {
+		int swaps = 0;
+		for (int i = 0; i < perm.length; i++) {
+			for (int j = i + 1; j < perm.length; j++) {
+				if (perm[i] > perm[j]) {
+					swaps++;
+				}
+			}
+		}
+		return swaps & 1;
+	}
+
+	/**
+	 * @return The number of ways to choose k things from n.
+	 */
+	private static int choose(int n, int k) {
+		if (k > n) {
+			return 0;
+		}
+		int result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+		}
+		return result;
+	}
+
+	/**
+	 * Ranks an ordered choice of count different values from 0 to size - 1.
+	 */
+	private static int rank(byte[] values, int count, int size) {
+		int index = 0;
+		int used = 0;
+		for (int i = 0; i < count; i++) {
+			int value = values[i];
+			int smaller = value - Integer.bitCount(used & ((1 << value) - 1));
+			index = index * (size - i) + smaller;
+			used |= 1 << value;
+		}
+		return index;
+	}
+
+	/**
+	 * The reverse of rank.
+	 */
+	private static void unrank(int index, byte[] values, int count, int size) {
+		int[] digits = new int[count];
+		for (int i = count - 1; i >= 0; i--) {
+			digits[i] = index % (size - i);
+			index /= size - i;
+		}
+		int used = 0;
+		for (int i = 0; i < count; i++) {
+			int value = -1;
+			for (int skip = digits[i]; skip >= 0; skip--) {
+				value++;
+				while ((used & (1 << value)) != 0) {
+					value++;
+				}
+			}
+			values[i] = (byte) value;
+			used |= 1 << value;
+		}
+	}
+}
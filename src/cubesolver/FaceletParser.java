@@ -0,0 +1,261 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * Reads a cube from its 54 stickers written as colour letters, W R B O G Y,
+ * in the order of Cube.getSquare, face by face, and checks it could be a
+ * real cube before anything tries to solve it.
+ *
+ * The checks are that there are 9 stickers of each colour, that the centres
+ * are the centres of a cube, that each corner and edge has the colours of a
+ * piece and is there once, that the corner twists add up to a multiple of 3
+ * and the edge flips to a multiple of 2, and that the corners and edges are
+ * both swapped an even or both an odd number of times. A cube that passes
+ * them all can be solved.
+ *
+ * The pieces are found with lookup tables and the swaps counted with bit
+ * masks, so checking makes no objects and takes a fixed time. A problem is
+ * returned as a Problem rather than thrown, so a file full of bad cubes
+ * costs no more to check than a good one.
+ *
+ * @author Andrew
+ *
+ */
+public final class FaceletParser {
+	/**
+	 * The letter of each colour, in ordinal order.
+	 */
+	public static final String COLOR_LETTERS = "WRBOGY";
+
+	/**
+	 * The reasons a cube can fail the checks.
+	 */
+	public enum Problem {
+		LENGTH("Not 54 stickers."),
+		LETTER("A sticker is not one of " + COLOR_LETTERS + "."),
+		COUNT("A colour is not on 9 stickers."),
+		CENTRES("The centres are not valid."),
+		CORNER("A corner has colours no corner has."),
+		EDGE("An edge has colours no edge has."),
+		REPEATED("A piece is there twice."),
+		TWIST("A corner is twisted."),
+		FLIP("An edge is flipped."),
+		PARITY("Two pieces are swapped.");
+
+		private final String message;
+
+		private Problem(String message) {
+			this.message = message;
+		}
+
+		/**
+		 * @return A sentence saying what is wrong.
+		 */
+		public String getMessage() {
+			return message;
+		}
+	}
+
+	private static final int COLORS = 6;
+	/**
+	 * The colour of each letter, upper or lower case, or -1.
+	 */
+	private static final byte[] LETTERS = new byte[128];
+	/**
+	 * Colour counts are kept 6 bits each in one long. This is the total when
+	 * every colour has 9.
+	 */
+	private static final long NINE_EACH;
+	/**
+	 * For the colours a, b and c read clockwise from the top or bottom of a
+	 * corner position, entry a * 36 + b * 6 + c is the corner times 4 plus
+	 * its twist, or -1 if no corner has those colours.
+	 */
+	private static final byte[] CORNER_LOOKUP = new byte[COLORS * COLORS
+			* COLORS];
+	/**
+	 * For the colours a and b of an edge position, entry a * 6 + b is the
+	 * edge times 2 plus its flip, or -1 if no edge has those colours.
+	 */
+	private static final byte[] EDGE_LOOKUP = new byte[COLORS * COLORS];
+
+	private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[MoveTable.STICKERS];
+		}
+	};
+
+	static {
+		Arrays.fill(LETTERS, (byte) -1);
+		long nines = 0;
+		for (int color = 0; color < COLORS; color++) {
+			char letter = COLOR_LETTERS.charAt(color);
+			LETTERS[letter] = (byte) color;
+			LETTERS[Character.toLowerCase(letter)] = (byte) color;
+			nines |= 9L << (color * 6);
+		}
+		NINE_EACH = nines;
+		Arrays.fill(CORNER_LOOKUP, (byte) -1);
+		for (int corner = 0; corner < CubieCube.CORNERS; corner++) {
+			int[] home = CubieCube.CORNER_FACELETS[corner];
+			for (int twist = 0; twist < 3; twist++) {
+				// As CubieCube.toStickers places a twisted corner.
+				int key = 0;
+				for (int k = 0; k < 3; k++) {
+					key = key * COLORS + home[(k + 3 - twist) % 3] / 9;
+				}
+				CORNER_LOOKUP[key] = (byte) (corner * 4 + twist);
+			}
+		}
+		Arrays.fill(EDGE_LOOKUP, (byte) -1);
+		for (int edge = 0; edge < CubieCube.EDGES; edge++) {
+			int[] home = CubieCube.EDGE_FACELETS[edge];
+			for (int flip = 0; flip < 2; flip++) {
+				EDGE_LOOKUP[home[flip] / 9 * COLORS + home[1 - flip] / 9] = (byte) (edge * 2 + flip);
+			}
+		}
+	}
+
+	private FaceletParser() {
+	}
+
+	/**
+	 * Reads a new cube from its stickers.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the text is not a cube that can be solved.
+	 *
+	 * @param text
+	 *            54 colour letters.
+	 * @return The cube.
+	 */
+	public static Cube parse(CharSequence text) {
+		Cube cube = new Cube();
+		parse(text, cube);
+		return cube;
+	}
+
+	/**
+	 * Sets a cube's stickers from text. The cube is left as it was if the
+	 * text fails the checks.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the text is not a cube that can be solved.
+	 *
+	 * @param text
+	 *            54 colour letters.
+	 * @param cube
+	 */
+	public static void parse(CharSequence text, Cube cube) {
+		byte[] stickers = SCRATCH.get();
+		Problem problem = check(text, stickers);
+		if (problem != null) {
+			throw new IllegalArgumentException(problem.getMessage());
+		}
+		cube.setStickers(stickers);
+	}
+
+	/**
+	 * Reads stickers from text and checks them.
+	 *
+	 * @param text
+	 *            54 colour letters.
+	 * @param stickers
+	 *            Set to the colour ordinals indexed face * 9 + square, as far
+	 *            as they could be read.
+	 * @return What is wrong, or null if the cube can be solved.
+	 */
+	public static Problem check(CharSequence text, byte[] stickers) {
+		if (text.length() != MoveTable.STICKERS) {
+			return Problem.LENGTH;
+		}
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			char letter = text.charAt(i);
+			int color = letter < LETTERS.length ? LETTERS[letter] : -1;
+			if (color < 0) {
+				return Problem.LETTER;
+			}
+			stickers[i] = (byte) color;
+		}
+		return check(stickers);
+	}
+
+	/**
+	 * Checks that stickers are of a cube that can be solved.
+	 *
+	 * @param stickers
+	 *            Colour ordinals indexed face * 9 + square.
+	 * @return What is wrong, or null if the cube can be solved.
+	 */
+	public static Problem check(byte[] stickers) {
+		if (stickers.length != MoveTable.STICKERS) {
+			return Problem.LENGTH;
+		}
+		long counts = 0;
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			int color = stickers[i];
+			if (color < 0 || color >= COLORS) {
+				return Problem.LETTER;
+			}
+			counts += 1L << (color * 6);
+		}
+		if (counts != NINE_EACH) {
+			return Problem.COUNT;
+		}
+		int rotation = Rotations.findHomeRotation(stickers);
+		if (rotation < 0) {
+			return Problem.CENTRES;
+		}
+		// Sticker i of the cube in the centre frame is stickers[frame[i]].
+		byte[] frame = Rotations.rotationPermutation(rotation);
+		int used = 0;
+		int swaps = 0;
+		int twist = 0;
+		for (int i = 0; i < CubieCube.CORNERS; i++) {
+			int[] facelets = CubieCube.CORNER_FACELETS[i];
+			int found = CORNER_LOOKUP[(stickers[frame[facelets[0]]] * COLORS + stickers[frame[facelets[1]]])
+					* COLORS + stickers[frame[facelets[2]]]];
+			if (found < 0) {
+				return Problem.CORNER;
+			}
+			int corner = found >> 2;
+			if ((used & 1 << corner) != 0) {
+				return Problem.REPEATED;
+			}
+			// Each corner already placed that is higher than this one is a
+			// pair out of order.
+			swaps += Integer.bitCount(used >>> corner);
+			used |= 1 << corner;
+			twist += found & 3;
+		}
+		used = 0;
+		int flip = 0;
+		for (int i = 0; i < CubieCube.EDGES; i++) {
+			int[] facelets = CubieCube.EDGE_FACELETS[i];
+			int found = EDGE_LOOKUP[stickers[frame[facelets[0]]] * COLORS
+					+ stickers[frame[facelets[1]]]];
+			if (found < 0) {
+				return Problem.EDGE;
+			}
+			int edge = found >> 1;
+			if ((used & 1 << edge) != 0) {
+				return Problem.REPEATED;
+			}
+			swaps += Integer.bitCount(used >>> edge);
+			used |= 1 << edge;
+			flip += found & 1;
+		}
+		if (twist % 3 != 0) {
+			return Problem.TWIST;
+		}
+		if (flip % 2 != 0) {
+			return Problem.FLIP;
+		}
+		if ((swaps & 1) != 0) {
+			return Problem.PARITY;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,128 @@
+package cubesolver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long things took, to give percentiles without keeping every
+ * time. Times are counted in buckets that grow by a quarter of a power of
+ * two each, so a percentile is never more than about a fifth out, from a
+ * microsecond to over an hour. Recording takes no lock, so many threads
+ * can record at once.
+ *
+ * @author Andrew
+ *
+ */
+public class LatencyHistogram {
+	/**
+	 * Buckets to each doubling of time.
+	 */
+	private static final int STEPS = 4;
+	private static final int BUCKETS = 32 * STEPS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param micros
+	 *            A time taken, in microseconds.
+	 */
+	public void record(long micros) {
+		micros = Math.max(micros, 1);
+		counts.incrementAndGet(bucket(micros));
+		count.incrementAndGet();
+		total.addAndGet(micros);
+		long worst;
+		while (micros > (worst = max.get())) {
+			if (max.compareAndSet(worst, micros)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return Number of times recorded.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return The mean time in microseconds, or 0 if none were recorded.
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) total.get() / n;
+	}
+
+	/**
+	 * @return The longest time in microseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percent
+	 *            0 to 100.
+	 * @return A time in microseconds that at least that percent of the
+	 *         times were no longer than, rounded up to the top of its
+	 *         bucket, or 0 if none were recorded.
+	 */
+	public long getPercentile(double percent) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long wanted = Math.max(1, (long) Math.ceil(n * percent / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= wanted) {
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * @return The count, mean, percentiles and maximum in milliseconds, as
+	 *         the members of a JSON object.
+	 */
+	public String toJson() {
+		return String.format("\"count\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,"
+				+ "\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f,"
+				+ "\"maxMs\":%.3f", getCount(), getMean() / 1000,
+				getPercentile(50) / 1000.0, getPercentile(90) / 1000.0,
+				getPercentile(99) / 1000.0, getPercentile(99.9) / 1000.0,
+				getMax() / 1000.0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d timed, mean %.2fms, p50 %.2fms, p90 %.2fms, "
+				+ "p99 %.2fms, max %.2fms", getCount(), getMean() / 1000,
+				getPercentile(50) / 1000.0, getPercentile(90) / 1000.0,
+				getPercentile(99) / 1000.0, getMax() / 1000.0);
+	}
+
+	private static int bucket(long micros) {
+		int power = 63 - Long.numberOfLeadingZeros(micros);
+		// The two bits after the top one say which quarter of the doubling.
+		int quarter = power >= 2 ? (int) (micros >>> (power - 2)) & 3
+				: (int) (micros << (2 - power)) & 3;
+		return Math.min(power * STEPS + quarter, BUCKETS - 1);
+	}
+
+	private static long upperBound(int bucket) {
+		int power = bucket / STEPS;
+		int quarter = bucket % STEPS;
+		if (power >= 2) {
+			return ((4L + quarter + 1) << (power - 2)) - 1;
+		}
+		// Below 4 microseconds each bucket holds a single time.
+		return (4L + quarter) >> (2 - power);
+	}
+}
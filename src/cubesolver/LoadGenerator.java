@@ -0,0 +1,189 @@
+package cubesolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sends scrambles to a SolveServer from many threads at once and reports
+ * how many were answered a second and how long they took, as seen by the
+ * client. Each thread sends its next request as soon as the last is
+ * answered, so the server is kept as busy as there are threads.
+ *
+ * The scrambles are all made before the clock starts, so only the requests
+ * are timed. Connections are kept open between requests where the server
+ * allows it.
+ *
+ * Usage: java cubesolver.LoadGenerator [-threads N] [-requests N]
+ * [-mode MODE] [-state] [-moves N] [-seed S] [url]. The url is
+ * http://localhost:8080/solve by default.
+ *
+ * @author Andrew
+ *
+ */
+public class LoadGenerator {
+	private static final int STATUSES = 600;
+
+	private final String url;
+	private final String[] cubes;
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicLongArray statuses = new AtomicLongArray(STATUSES);
+	private final AtomicLong ioErrors = new AtomicLong();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * @param url
+	 *            The solve address, with any parameters other than the cube
+	 *            already on it.
+	 * @param scrambles
+	 *            Move ids of each cube to send, sent once each.
+	 */
+	public LoadGenerator(String url, int[][] scrambles) {
+		this.url = url + (url.indexOf('?') < 0 ? "?" : "&") + "cube=";
+		cubes = new String[scrambles.length];
+		for (int i = 0; i < scrambles.length; i++) {
+			StringBuilder cube = new StringBuilder();
+			for (int move : scrambles[i]) {
+				if (cube.length() > 0) {
+					cube.append(' ');
+				}
+				cube.append(MoveTable.slice(move)).append('_')
+						.append(MoveTable.direction(move));
+			}
+			try {
+				cubes[i] = URLEncoder.encode(cube.toString(), "UTF-8");
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = 16;
+		int requests = 10000;
+		String mode = null;
+		boolean state = false;
+		int length = 20;
+		Scrambler scrambler = new Scrambler();
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+			if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-requests")) {
+				requests = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-mode")) {
+				mode = SolverMode.valueOf(args[++i]).name();
+			} else if (args[i].equals("-state")) {
+				state = true;
+			} else if (args[i].equals("-moves")) {
+				length = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-seed")) {
+				scrambler = new Scrambler(Long.parseLong(args[++i]));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (args.length - i > 1) {
+			System.err.println("Usage: java cubesolver.LoadGenerator "
+					+ "[-threads N] [-requests N] [-mode MODE] [-state] "
+					+ "[-moves N] [-seed S] [url]");
+			System.exit(2);
+		}
+		String url = i < args.length ? args[i] : "http://localhost:"
+				+ SolveServer.DEFAULT_PORT + "/solve";
+		if (mode != null) {
+			url += (url.indexOf('?') < 0 ? "?" : "&") + "mode=" + mode;
+		}
+		int[][] scrambles = scrambler.generate(0, requests, state, length,
+				Runtime.getRuntime().availableProcessors());
+		LoadGenerator load = new LoadGenerator(url, scrambles);
+		long nanos = load.run(threads);
+		System.out.println(load.summary(nanos));
+	}
+
+	/**
+	 * Sends every cube and waits for the answers.
+	 *
+	 * @param threads
+	 *            Number of requests sent at once.
+	 * @return Nanoseconds taken.
+	 * @throws InterruptedException
+	 */
+	public long run(int threads) throws InterruptedException {
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					byte[] buffer = new byte[4096];
+					int item;
+					while ((item = next.getAndIncrement()) < cubes.length) {
+						send(cubes[item], buffer);
+					}
+				}
+			}, "load-" + i));
+		}
+		long start = System.nanoTime();
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private void send(String cube, byte[] buffer) {
+		long start = System.nanoTime();
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url
+					+ cube).openConnection();
+			int status = connection.getResponseCode();
+			// Reading the whole answer lets the connection be used again.
+			InputStream in = status < 400 ? connection.getInputStream()
+					: connection.getErrorStream();
+			if (in != null) {
+				try {
+					while (in.read(buffer) > 0) {
+					}
+				} finally {
+					in.close();
+				}
+			}
+			statuses.incrementAndGet(Math.min(status, STATUSES - 1));
+		} catch (IOException e) {
+			ioErrors.incrementAndGet();
+		}
+		latency.record((System.nanoTime() - start) / 1000);
+	}
+
+	/**
+	 * @param nanos
+	 *            Time the run took.
+	 * @return Requests a second, the count of each status, and the times.
+	 */
+	public String summary(long nanos) {
+		double seconds = nanos / 1e9;
+		StringBuilder summary = new StringBuilder(String.format(
+				"%d requests in %.2fs, %.0f a second", latency.getCount(),
+				seconds, latency.getCount() / seconds));
+		for (int status = 0; status < STATUSES; status++) {
+			if (statuses.get(status) > 0) {
+				summary.append(", ").append(statuses.get(status))
+						.append(" x ").append(status);
+			}
+		}
+		if (ioErrors.get() > 0) {
+			summary.append(", ").append(ioErrors.get())
+					.append(" connection errors");
+		}
+		return summary.append('\n').append(latency).toString();
+	}
+}
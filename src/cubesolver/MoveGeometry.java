@@ -0,0 +1,115 @@
+package cubesolver;
+
+/**
+ * Where each move turns in space: which axis, which layer along it and
+ * which way. Coordinates are as in Symmetry, x to the right, y up and z
+ * towards the front face, with layers at -1, 0 and 1. The turns are worked
+ * out from the move permutations, so they always agree with MoveTable.
+ *
+ * @author Andrew
+ *
+ */
+final class MoveGeometry {
+	/**
+	 * The axis each move turns about, 0 to 2 for x, y and z.
+	 */
+	static final int[] AXIS = new int[MoveTable.MOVE_COUNT];
+	/**
+	 * The coordinate along the axis of the layer each move turns.
+	 */
+	static final int[] LAYER = new int[MoveTable.MOVE_COUNT];
+	/**
+	 * 1 if each move turns its layer anticlockwise looking down the axis
+	 * towards the origin, or -1 if clockwise.
+	 */
+	static final int[] SIGN = new int[MoveTable.MOVE_COUNT];
+
+	static {
+		for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+			findTurn(move);
+		}
+	}
+
+	private MoveGeometry() {
+	}
+
+	/**
+	 * @param axis
+	 *            0 to 2.
+	 * @param layer
+	 *            -1 to 1.
+	 * @param sign
+	 *            1 or -1, as for SIGN.
+	 * @return The move that turns that layer that way.
+	 */
+	static int move(int axis, int layer, int sign) {
+		for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+			if (AXIS[move] == axis && LAYER[move] == layer
+					&& SIGN[move] == sign) {
+				return move;
+			}
+		}
+		throw new IllegalStateException("No move turns layer " + layer
+				+ " of axis " + axis + ".");
+	}
+
+	/**
+	 * Works out the layer a move turns and which way, from where its
+	 * permutation sends each sticker.
+	 */
+	private static void findTurn(int move) {
+		byte[] perm = MoveTable.PERMUTATIONS[move];
+		int axis = -1;
+		int layer = 0;
+		for (int i = 0; i < 3 && axis < 0; i++) {
+			axis = i;
+			layer = 2;
+			for (int s = 0; s < MoveTable.STICKERS; s++) {
+				if (perm[s] != s) {
+					int value = Symmetry.position(s)[i];
+					if (layer == 2) {
+						layer = value;
+					} else if (layer != value) {
+						axis = -1;
+						break;
+					}
+				}
+			}
+		}
+		for (int sign = 1; sign >= -1; sign -= 2) {
+			if (turns(perm, axis, sign)) {
+				AXIS[move] = axis;
+				LAYER[move] = layer;
+				SIGN[move] = sign;
+				return;
+			}
+		}
+		throw new IllegalStateException("Move " + move
+				+ " is not a quarter turn of a layer.");
+	}
+
+	/**
+	 * @return True if turning each moved sticker a quarter turn about the
+	 *         axis puts it where the permutation sends it.
+	 */
+	private static boolean turns(byte[] perm, int axis, int sign) {
+		int a = (axis + 1) % 3;
+		int b = (axis + 2) % 3;
+		for (int s = 0; s < MoveTable.STICKERS; s++) {
+			if (perm[s] == s) {
+				continue;
+			}
+			// The sticker at perm[s] moves to s.
+			int[] from = Symmetry.position(perm[s]);
+			int[] to = Symmetry.position(s);
+			for (int offset = 0; offset <= 3; offset += 3) {
+				if (to[axis + offset] != from[axis + offset]
+						|| to[a + offset] != -sign * from[b + offset]
+						|| to[b + offset] != sign * from[a + offset]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,133 @@
+package cubesolver;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A list of moves compiled into one sticker permutation, so the whole list
+ * can be made with Cube.applySequence in a single pass over the stickers
+ * instead of one pass per move.
+ *
+ * Sequences made with compile or of are kept in a cache and shared, so an
+ * algorithm used again is not compiled again. Sequences used once, such as
+ * a random scramble, should be made with the constructor instead.
+ *
+ * @author Andrew
+ *
+ */
+public final class MoveSequence {
+	/**
+	 * Most sequences to keep in the cache. Once it is full, new sequences
+	 * are still compiled but not kept.
+	 */
+	private static final int CACHE_SIZE = 1024;
+	private static final ConcurrentMap<String, MoveSequence> CACHE = new ConcurrentHashMap<String, MoveSequence>();
+
+	private final int[] moves;
+	final byte[] permutation;
+	final byte[] movedStickers;
+	final byte[] changed;
+	final byte[] movedCentres;
+
+	/**
+	 * Compiles a list of moves without caching it.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a move id is out of range.
+	 *
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
+	 */
+	public MoveSequence(int[] moves) {
+		for (int move : moves) {
+			if (move < 0 || move >= MoveTable.MOVE_COUNT) {
+				throw new IllegalArgumentException("Invalid move.");
+			}
+		}
+		this.moves = moves.clone();
+		permutation = MoveTable.compose(moves);
+		movedStickers = MoveTable.movedStickers(permutation, false);
+		changed = MoveTable.movedStickers(permutation, true);
+		movedCentres = MoveTable.movedCentres(permutation);
+	}
+
+	/**
+	 * Returns the compiled sequence for a list of moves, from the cache if it
+	 * has been compiled before.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a move id is out of range.
+	 *
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
+	 * @return The sequence.
+	 */
+	public static MoveSequence compile(int[] moves) {
+		String key = key(moves);
+		MoveSequence sequence = CACHE.get(key);
+		if (sequence == null) {
+			sequence = new MoveSequence(moves);
+			if (CACHE.size() < CACHE_SIZE) {
+				MoveSequence cached = CACHE.putIfAbsent(key, sequence);
+				if (cached != null) {
+					sequence = cached;
+				}
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * Returns the compiled sequence for moves given as they would be passed
+	 * to Cube.changeCube, from the cache if it has been compiled before.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a direction or slice is out of range, or a slice is
+	 *             missing.
+	 *
+	 * @param directionSlicePairs
+	 *            The direction and then the slice of each move.
+	 * @return The sequence.
+	 */
+	public static MoveSequence of(int... directionSlicePairs) {
+		if (directionSlicePairs.length % 2 != 0) {
+			throw new IllegalArgumentException("Each move needs a direction "
+					+ "and a slice.");
+		}
+		int[] moves = new int[directionSlicePairs.length / 2];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = MoveTable.moveId(directionSlicePairs[i * 2],
+					directionSlicePairs[i * 2 + 1]);
+		}
+		return compile(moves);
+	}
+
+	/**
+	 * @return A copy of the move ids the sequence was compiled from.
+	 */
+	public int[] getMoves() {
+		return moves.clone();
+	}
+
+	/**
+	 * @return The number of moves in the sequence.
+	 */
+	public int length() {
+		return moves.length;
+	}
+
+	/**
+	 * Each move id becomes one character, which makes a small key that
+	 * compares quickly.
+	 */
+	private static String key(int[] moves) {
+		char[] key = new char[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			if (moves[i] < 0 || moves[i] >= MoveTable.MOVE_COUNT) {
+				throw new IllegalArgumentException("Invalid move.");
+			}
+			key[i] = (char) moves[i];
+		}
+		return new String(key);
+	}
+}
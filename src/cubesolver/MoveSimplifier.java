@@ -0,0 +1,129 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * Shortens lists of moves without changing what they do to the cube.
+ *
+ * The nine slices of Cube.changeCube lie on three axes, slices 1 to 3, 4 to
+ * 6 and 7 to 9. Turns of slices on the same axis do not get in each other's
+ * way, so a run of them can be made in any order. Within a run only how far
+ * each slice turns in the end matters: a quarter turn either way, a half
+ * turn or nothing. The simplifier adds up each run, writes it out with the
+ * slices in order, a quarter turn as one move and a half turn as two moves
+ * in direction 0, and drops runs that come to nothing, which may join the
+ * runs either side of them into one.
+ *
+ * The result is the shortest list that can be made this way and the same
+ * input always gives the same output, so equal solutions look equal.
+ *
+ * @author Andrew
+ *
+ */
+public final class MoveSimplifier {
+	private static final int SLICES_PER_AXIS = 3;
+
+	private MoveSimplifier() {
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             If a move id is out of range.
+	 *
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
+	 * @return The shortest list of moves doing the same, never longer than
+	 *         the moves given.
+	 */
+	public static int[] simplify(int[] moves) {
+		// Each run is its axis and the quarter turns of each of its slices,
+		// counting direction 0 as one and direction 1 as three.
+		int[] axes = new int[moves.length];
+		int[] turns = new int[moves.length * SLICES_PER_AXIS];
+		int runs = 0;
+		for (int move : moves) {
+			if (move < 0 || move >= MoveTable.MOVE_COUNT) {
+				throw new IllegalArgumentException("Invalid move.");
+			}
+			int slice = MoveTable.slice(move) - 1;
+			int axis = slice / SLICES_PER_AXIS;
+			if (runs == 0 || axes[runs - 1] != axis) {
+				axes[runs] = axis;
+				Arrays.fill(turns, runs * SLICES_PER_AXIS, (runs + 1)
+						* SLICES_PER_AXIS, 0);
+				runs++;
+			}
+			int base = (runs - 1) * SLICES_PER_AXIS;
+			int index = base + slice % SLICES_PER_AXIS;
+			turns[index] = (turns[index] + (MoveTable.direction(move) == 0 ? 1
+					: 3)) % 4;
+			if (turns[base] == 0 && turns[base + 1] == 0
+					&& turns[base + 2] == 0) {
+				// The run has undone itself, so the next move may join the
+				// run before it.
+				runs--;
+			}
+		}
+		int[] simplified = new int[moves.length];
+		int count = 0;
+		for (int run = 0; run < runs; run++) {
+			for (int i = 0; i < SLICES_PER_AXIS; i++) {
+				int slice = axes[run] * SLICES_PER_AXIS + i + 1;
+				switch (turns[run * SLICES_PER_AXIS + i]) {
+				case 1:
+					simplified[count++] = MoveTable.moveId(0, slice);
+					break;
+				case 2:
+					simplified[count++] = MoveTable.moveId(0, slice);
+					simplified[count++] = MoveTable.moveId(0, slice);
+					break;
+				case 3:
+					simplified[count++] = MoveTable.moveId(1, slice);
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(simplified, count);
+	}
+
+	/**
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
+	 * @return True if simplify would leave the moves as they are.
+	 */
+	public static boolean isSimplified(int[] moves) {
+		return Arrays.equals(simplify(moves), moves);
+	}
+
+	/**
+	 * Says whether a search can leave out a move because some other list of
+	 * moves no longer does the same, so that only lists simplify would leave
+	 * as they are get searched. The run of the last move can only go on with
+	 * a higher slice on its axis, or with a second direction 0 quarter turn
+	 * of the same slice to make a half turn.
+	 *
+	 * @param before
+	 *            The move before last, or -1 if there is none.
+	 * @param last
+	 *            The last move, or -1 if there is none.
+	 * @param move
+	 *            The move to try next.
+	 * @return True if the move need not be tried.
+	 */
+	static boolean isRedundant(int before, int last, int move) {
+		if (last < 0) {
+			return false;
+		}
+		int lastSlice = MoveTable.slice(last);
+		int slice = MoveTable.slice(move);
+		if ((lastSlice - 1) / SLICES_PER_AXIS != (slice - 1) / SLICES_PER_AXIS) {
+			return false;
+		}
+		if (slice != lastSlice) {
+			return slice < lastSlice;
+		}
+		return move != last || MoveTable.direction(move) != 0 || before == last;
+	}
+}
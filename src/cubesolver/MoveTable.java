@@ -0,0 +1,274 @@
+package cubesolver;
+
+/**
+ * Holds every move of the cube as a permutation of the 54 stickers, so any
+ * move can be applied with one loop instead of hand written assignments.
+ * Stickers are numbered face * 9 + square as in Cube.
+ *
+ * A permutation p moves the cube from one state to the next by
+ * next[i] = current[p[i]]. The 18 moves are numbered by
+ * (slice - 1) * 2 + direction, using the same slice and direction as
+ * Cube.changeCube.
+ *
+ * @author Andrew
+ *
+ */
+public final class MoveTable {
+	/**
+	 * Number of moves, 9 slices each turned in 2 directions.
+	 */
+	public static final int MOVE_COUNT = 18;
+	/**
+	 * Number of stickers a permutation moves around.
+	 */
+	public static final int STICKERS = 54;
+
+	/**
+	 * The stickers each slice moves when turned in direction 0. Each group of
+	 * four is a cycle: the sticker at the first index moves to the second,
+	 * the second to the third, the third to the fourth and the fourth back to
+	 * the first. Direction 1 is the inverse.
+	 */
+	private static final int[][][] SLICE_CYCLES = {
+			// slice 1, the left slice, turns face 2 as well
+			{ { 0, 9, 45, 35 }, { 3, 12, 48, 32 }, { 6, 15, 51, 29 },
+					{ 18, 20, 26, 24 }, { 19, 23, 25, 21 } },
+			// slice 2
+			{ { 1, 10, 46, 34 }, { 4, 13, 49, 31 }, { 7, 16, 52, 28 } },
+			// slice 3, the right slice, turns face 4 as well
+			{ { 2, 11, 47, 33 }, { 5, 14, 50, 30 }, { 8, 17, 53, 27 },
+					{ 36, 42, 44, 38 }, { 37, 39, 43, 41 } },
+			// slice 4 turns face 3 as well
+			{ { 0, 24, 53, 38 }, { 1, 21, 52, 41 }, { 2, 18, 51, 44 },
+					{ 27, 29, 35, 33 }, { 28, 32, 34, 30 } },
+			// slice 5
+			{ { 3, 25, 50, 37 }, { 4, 22, 49, 40 }, { 5, 19, 48, 43 } },
+			// slice 6 turns face 1 as well
+			{ { 6, 26, 47, 36 }, { 7, 23, 46, 39 }, { 8, 20, 45, 42 },
+					{ 9, 15, 17, 11 }, { 10, 12, 16, 14 } },
+			// slice 7, the top of the front face, turns face 0 as well
+			{ { 0, 2, 8, 6 }, { 1, 5, 7, 3 }, { 9, 18, 27, 36 },
+					{ 10, 19, 28, 37 }, { 11, 20, 29, 38 } },
+			// slice 8
+			{ { 12, 21, 30, 39 }, { 13, 22, 31, 40 }, { 14, 23, 32, 41 } },
+			// slice 9, the bottom of the front face, turns face 5 as well
+			{ { 15, 24, 33, 42 }, { 16, 25, 34, 43 }, { 17, 26, 35, 44 },
+					{ 45, 51, 53, 47 }, { 46, 48, 52, 50 } } };
+
+	/**
+	 * The permutation of each move, indexed by move id.
+	 */
+	static final byte[][] PERMUTATIONS = new byte[MOVE_COUNT][];
+	/**
+	 * Every sticker each move changes.
+	 */
+	static final byte[][] MOVED_STICKERS = new byte[MOVE_COUNT][];
+	/**
+	 * The stickers each move changes, leaving out the faces whose centre it
+	 * moves.
+	 */
+	static final byte[][] CHANGED = new byte[MOVE_COUNT][];
+	/**
+	 * The faces whose centre each move moves. Only the middle slices move
+	 * centres, and each of them moves four.
+	 */
+	static final byte[][] MOVED_CENTRES = new byte[MOVE_COUNT][];
+
+	static {
+		for (int slice = 1; slice <= 9; slice++) {
+			byte[] forwards = identity();
+			for (int[] cycle : SLICE_CYCLES[slice - 1]) {
+				for (int i = 0; i < cycle.length; i++) {
+					// The sticker at cycle[i] ends up at the next index.
+					forwards[cycle[(i + 1) % cycle.length]] = (byte) cycle[i];
+				}
+			}
+			PERMUTATIONS[moveId(0, slice)] = forwards;
+			PERMUTATIONS[moveId(1, slice)] = invert(forwards);
+		}
+		for (int move = 0; move < MOVE_COUNT; move++) {
+			byte[] perm = PERMUTATIONS[move];
+			MOVED_STICKERS[move] = movedStickers(perm, false);
+			CHANGED[move] = movedStickers(perm, true);
+			MOVED_CENTRES[move] = movedCentres(perm);
+		}
+	}
+
+	private MoveTable() {
+	}
+
+	/**
+	 * Works out the id of a move.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the direction or slice is out of range.
+	 *
+	 * @param direction
+	 *            0 or 1, as for Cube.changeCube.
+	 * @param slice
+	 *            1 to 9, as for Cube.changeCube.
+	 * @return The move id, 0 to 17.
+	 */
+	public static int moveId(int direction, int slice) {
+		if (direction != 0 && direction != 1) {
+			throw new IllegalArgumentException("Invalid move.");
+		}
+		if (slice < 1 || slice > 9) {
+			throw new IllegalArgumentException("Invalid move.");
+		}
+		return (slice - 1) * 2 + direction;
+	}
+
+	/**
+	 * @param move
+	 *            A move id.
+	 * @return The direction to pass to Cube.changeCube for the move.
+	 */
+	public static int direction(int move) {
+		return move & 1;
+	}
+
+	/**
+	 * @param move
+	 *            A move id.
+	 * @return The slice to pass to Cube.changeCube for the move.
+	 */
+	public static int slice(int move) {
+		return (move >> 1) + 1;
+	}
+
+	/**
+	 * @param move
+	 *            A move id.
+	 * @return The move id that undoes the move, the same slice turned the
+	 *         other way.
+	 */
+	public static int inverse(int move) {
+		return move ^ 1;
+	}
+
+	/**
+	 * Returns a copy of the permutation for a move.
+	 *
+	 * @param move
+	 *            A move id.
+	 * @return The permutation.
+	 */
+	public static byte[] permutation(int move) {
+		return PERMUTATIONS[move].clone();
+	}
+
+	/**
+	 * @return The permutation that leaves every sticker where it is.
+	 */
+	public static byte[] identity() {
+		byte[] perm = new byte[STICKERS];
+		for (int i = 0; i < STICKERS; i++) {
+			perm[i] = (byte) i;
+		}
+		return perm;
+	}
+
+	/**
+	 * Makes the permutation that undoes the given one.
+	 *
+	 * @param perm
+	 * @return The inverse permutation.
+	 */
+	public static byte[] invert(byte[] perm) {
+		byte[] inverse = new byte[STICKERS];
+		for (int i = 0; i < STICKERS; i++) {
+			inverse[perm[i]] = (byte) i;
+		}
+		return inverse;
+	}
+
+	/**
+	 * Makes the permutation that has the same effect as applying first and
+	 * then second.
+	 *
+	 * @param first
+	 * @param second
+	 * @return The combined permutation.
+	 */
+	public static byte[] compose(byte[] first, byte[] second) {
+		byte[] combined = new byte[STICKERS];
+		for (int i = 0; i < STICKERS; i++) {
+			combined[i] = first[second[i]];
+		}
+		return combined;
+	}
+
+	/**
+	 * Makes the permutation for a list of moves applied in order.
+	 *
+	 * @param moves
+	 *            Move ids.
+	 * @return The combined permutation.
+	 */
+	public static byte[] compose(int[] moves) {
+		byte[] combined = identity();
+		byte[] spare = new byte[STICKERS];
+		for (int move : moves) {
+			// Composing with a move is the same as applying it.
+			apply(PERMUTATIONS[move], combined, spare);
+			byte[] previous = combined;
+			combined = spare;
+			spare = previous;
+		}
+		return combined;
+	}
+
+	/**
+	 * Lists the stickers a permutation changes.
+	 *
+	 * @param perm
+	 * @param skipMovedCentres
+	 *            True to leave out the faces whose centre is moved.
+	 * @return The sticker indices, in order.
+	 */
+	static byte[] movedStickers(byte[] perm, boolean skipMovedCentres) {
+		byte[] moved = new byte[STICKERS];
+		int count = 0;
+		for (int i = 0; i < STICKERS; i++) {
+			int centre = i / 9 * 9 + 4;
+			if (perm[i] != i
+					&& !(skipMovedCentres && perm[centre] != centre)) {
+				moved[count++] = (byte) i;
+			}
+		}
+		return java.util.Arrays.copyOf(moved, count);
+	}
+
+	/**
+	 * Lists the faces whose centre a permutation moves.
+	 *
+	 * @param perm
+	 * @return The faces, in order.
+	 */
+	static byte[] movedCentres(byte[] perm) {
+		byte[] faces = new byte[6];
+		int count = 0;
+		for (int face = 0; face < faces.length; face++) {
+			int centre = face * 9 + 4;
+			if (perm[centre] != centre) {
+				faces[count++] = (byte) face;
+			}
+		}
+		return java.util.Arrays.copyOf(faces, count);
+	}
+
+	/**
+	 * Moves the stickers in from according to perm and writes them to to. The
+	 * two arrays must not be the same array.
+	 *
+	 * @param perm
+	 * @param from
+	 * @param to
+	 */
+	public static void apply(byte[] perm, byte[] from, byte[] to) {
+		for (int i = 0; i < STICKERS; i++) {
+			to[i] = from[perm[i]];
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * Reads and writes moves in the usual cube notation, turning it into the
+ * move ids of MoveTable and back.
+ *
+ * R, L, U, D, F and B turn a face a quarter turn clockwise, looking at that
+ * face. M turns the middle layer between L and R the same way as L, E the
+ * one between U and D the same way as D, and S the one between F and B the
+ * same way as F. r, l, u, d, f and b, or Rw, Lw and so on, turn a face and
+ * the middle layer next to it. x, y and z turn the whole cube the same way
+ * as R, U and F. A ' after a move turns it the other way, and a 2 turns it
+ * twice. Moves may be separated by spaces or written together, as in
+ * "RUR'U'".
+ *
+ * Half turns become two of the same move, each direction 0, as
+ * MoveSimplifier writes them, so printing a simplified list and reading it
+ * back gives the same move ids.
+ *
+ * Reading goes through the text a character at a time with lookup tables,
+ * and the version that fills an array makes no objects unless the text is
+ * bad.
+ *
+ * @author Andrew
+ *
+ */
+public final class Notation {
+	/**
+	 * Most moves one letter can stand for, a whole cube turned twice.
+	 */
+	private static final int MOST_PER_LETTER = 6;
+	/**
+	 * Letters turning a single layer. A move id is printed with the one of
+	 * these that turns its layer.
+	 */
+	private static final String LAYER_LETTERS = "RLUDFBMES";
+
+	/**
+	 * The move ids of a quarter turn of each letter, the way the letter
+	 * turns, or null for a character that is not a move.
+	 */
+	private static final int[][] LETTER_MOVES = new int[128][];
+	/**
+	 * How each move id is printed.
+	 */
+	private static final String[] NAMES = new String[MoveTable.MOVE_COUNT];
+	/**
+	 * The letter of each move id, without a '.
+	 */
+	private static final char[] LETTERS = new char[MoveTable.MOVE_COUNT];
+
+	static {
+		// The axis, the way and the layers each letter turns, the way as for
+		// MoveGeometry.SIGN.
+		define('R', 0, -1, 1);
+		define('L', 0, 1, -1);
+		define('U', 1, -1, 1);
+		define('D', 1, 1, -1);
+		define('F', 2, -1, 1);
+		define('B', 2, 1, -1);
+		define('M', 0, 1, 0);
+		define('E', 1, 1, 0);
+		define('S', 2, -1, 0);
+		define('r', 0, -1, 1, 0);
+		define('l', 0, 1, -1, 0);
+		define('u', 1, -1, 1, 0);
+		define('d', 1, 1, -1, 0);
+		define('f', 2, -1, 1, 0);
+		define('b', 2, 1, -1, 0);
+		define('x', 0, -1, -1, 0, 1);
+		define('y', 1, -1, -1, 0, 1);
+		define('z', 2, -1, -1, 0, 1);
+		for (int i = 0; i < LAYER_LETTERS.length(); i++) {
+			char letter = LAYER_LETTERS.charAt(i);
+			int move = LETTER_MOVES[letter][0];
+			LETTERS[move] = letter;
+			LETTERS[MoveTable.inverse(move)] = letter;
+			NAMES[move] = String.valueOf(letter);
+			NAMES[MoveTable.inverse(move)] = letter + "'";
+		}
+	}
+
+	private Notation() {
+	}
+
+	private static void define(char letter, int axis, int sign, int... layers) {
+		int[] moves = new int[layers.length];
+		for (int i = 0; i < layers.length; i++) {
+			moves[i] = MoveGeometry.move(axis, layers[i], sign);
+		}
+		LETTER_MOVES[letter] = moves;
+	}
+
+	/**
+	 * Reads moves.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the text has something that is not a move.
+	 *
+	 * @param text
+	 *            Moves such as "R U2 F'".
+	 * @return Their move ids, as numbered by MoveTable.
+	 */
+	public static int[] parse(CharSequence text) {
+		int[] moves = new int[text.length() * MOST_PER_LETTER];
+		return Arrays.copyOf(moves, parse(text, moves));
+	}
+
+	/**
+	 * Reads moves into an array, making no objects.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the text has something that is not a move, or the moves
+	 *             do not fit.
+	 *
+	 * @param text
+	 *            Moves such as "R U2 F'".
+	 * @param moves
+	 *            Filled from the start with move ids, as numbered by
+	 *            MoveTable.
+	 * @return Number of move ids written.
+	 */
+	public static int parse(CharSequence text, int[] moves) {
+		int count = 0;
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char letter = text.charAt(i++);
+			if (Character.isWhitespace(letter)) {
+				continue;
+			}
+			int[] turn = letter < LETTER_MOVES.length ? LETTER_MOVES[letter]
+					: null;
+			if (turn == null) {
+				throw new IllegalArgumentException("Bad move at " + (i - 1)
+						+ " in " + text + ".");
+			}
+			if (i < length && text.charAt(i) == 'w'
+					&& Character.isUpperCase(letter)
+					&& LETTER_MOVES[Character.toLowerCase(letter)] != null) {
+				turn = LETTER_MOVES[Character.toLowerCase(letter)];
+				i++;
+			}
+			int quarters = 1;
+			if (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+				quarters = text.charAt(i++) - '0';
+			}
+			if (i < length
+					&& (text.charAt(i) == '\'' || text.charAt(i) == '\u2019')) {
+				quarters = 4 - quarters % 4;
+				i++;
+			}
+			quarters %= 4;
+			int needed = quarters == 0 ? 0 : quarters == 2 ? turn.length * 2
+					: turn.length;
+			if (count + needed > moves.length) {
+				throw new IllegalArgumentException("Too many moves.");
+			}
+			for (int move : turn) {
+				if (quarters == 1) {
+					moves[count++] = move;
+				} else if (quarters == 3) {
+					moves[count++] = MoveTable.inverse(move);
+				} else if (quarters == 2) {
+					moves[count++] = move & ~1;
+					moves[count++] = move & ~1;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes moves in notation, a move made twice in a row as one half
+	 * turn.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a move id is out of range.
+	 *
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
+	 * @return The moves separated by spaces, such as "R U2 F'".
+	 */
+	public static String print(int[] moves) {
+		StringBuilder text = new StringBuilder(moves.length * 3);
+		print(moves, moves.length, text);
+		return text.toString();
+	}
+
+	/**
+	 * Writes moves in notation onto the end of a StringBuilder.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a move id is out of range.
+	 *
+	 * @param moves
+	 *            Move ids, as numbered by MoveTable.
+	 * @param count
+	 *            Number of moves to write from the start of the array.
+	 * @param text
+	 */
+	public static void print(int[] moves, int count, StringBuilder text) {
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (move < 0 || move >= MoveTable.MOVE_COUNT) {
+				throw new IllegalArgumentException("Invalid move.");
+			}
+			if (i > 0) {
+				text.append(' ');
+			}
+			if (i + 1 < count && moves[i + 1] == move) {
+				text.append(LETTERS[move]).append('2');
+				i++;
+			} else {
+				text.append(NAMES[move]);
+			}
+		}
+	}
+}
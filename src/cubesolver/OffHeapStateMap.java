@@ -0,0 +1,332 @@
+package cubesolver;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hash set of cube states, each with a byte value, kept in direct buffers
+ * outside the Java heap so it can hold hundreds of millions of them without
+ * the garbage collector ever looking at them. Many threads may add and look
+ * up states at once.
+ *
+ * A state is a key of one long, or of two for a wide map. As in
+ * PackedStateMap the value is kept in the top 8 bits of the first long, so
+ * that long may use only its low 56 bits and must not be 0, which marks an
+ * empty slot. A narrow map takes 8 bytes a slot and a wide one 16, with no
+ * objects at all.
+ *
+ * The slots are split into segments of at most 1GB, since a buffer can hold
+ * no more than 2GB, and a key always lives in the segment its hash picks,
+ * found by linear probing within it. Adding a key locks its segment, so two
+ * threads adding the same state cannot both add it, and with many segments
+ * threads seldom wait for each other. A lookup first looks without the
+ * lock. Nothing makes another thread's writes show up there, so if it does
+ * not find the key it looks again holding the lock, and so always sees
+ * every key added before it started. A key found without the lock is
+ * trusted, since its first long is only ever written once, except that a
+ * wide key whose low half is 0 could match a slot caught half written, so
+ * it is only looked for under the lock. Missing keys, which a search mostly
+ * looks for, therefore always take the lock.
+ *
+ * The map never grows, since moving entries while other threads are adding
+ * them would need every lock, so it should be made big enough to start
+ * with. Direct buffers count against -XX:MaxDirectMemorySize, which is the
+ * heap size unless set, so a big map needs that set too. The memory is given
+ * back once the map is closed and the garbage collector has let go of the
+ * buffers.
+ *
+ * @author Andrew
+ *
+ */
+public final class OffHeapStateMap implements Closeable {
+	private static final int VALUE_SHIFT = 56;
+	private static final long KEY_MASK = (1L << VALUE_SHIFT) - 1;
+	/**
+	 * Most bytes in one segment.
+	 */
+	private static final int MAX_SEGMENT_BYTES = 1 << 30;
+	/**
+	 * Fewest slots in a segment, so a small map is not all locks.
+	 */
+	private static final int MIN_SEGMENT_SLOTS = 1 << 10;
+	/**
+	 * Segments a big map is split into.
+	 */
+	private static final int SEGMENTS = 256;
+
+	private final boolean wide;
+	private final int slotBytes;
+	private final long capacity;
+	private final int segmentSlots;
+	private final int slotMask;
+	private final int segmentMask;
+	private ByteBuffer[] segments;
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * Makes an empty map with room for a number of states.
+	 *
+	 * @throws OutOfMemoryError
+	 *             If the memory cannot be had.
+	 *
+	 * @param entries
+	 *            Most states the map will hold. It is made with at least a
+	 *            third more slots, so searching it stays quick when it is
+	 *            full.
+	 * @param wide
+	 *            True for keys of two longs.
+	 */
+	public OffHeapStateMap(long entries, boolean wide) {
+		if (entries < 0 || entries > 1L << 40) {
+			throw new IllegalArgumentException("Bad size " + entries);
+		}
+		this.wide = wide;
+		slotBytes = wide ? 16 : 8;
+		capacity = Math.max(16,
+				Long.highestOneBit(Math.max(1, entries + entries / 3) - 1) << 1);
+		long slots = Math.max(Math.min(capacity, MIN_SEGMENT_SLOTS), capacity
+				/ SEGMENTS);
+		segmentSlots = (int) Math.min(slots, MAX_SEGMENT_BYTES / slotBytes);
+		slotMask = segmentSlots - 1;
+		segments = new ByteBuffer[(int) (capacity / segmentSlots)];
+		segmentMask = segments.length - 1;
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = ByteBuffer.allocateDirect(segmentSlots * slotBytes)
+					.order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * @return The value of a narrow key, 0 to 255, or -1 if it is not in the
+	 *         map.
+	 */
+	public int get(long key) {
+		checkKey(key, false);
+		long hash = hash(key, 0);
+		ByteBuffer segment = segment(hash);
+		int slot = (int) hash & slotMask;
+		int value = find(segment, slot, key);
+		if (value >= 0) {
+			return value;
+		}
+		synchronized (segment) {
+			return find(segment, slot, key);
+		}
+	}
+
+	/**
+	 * @return The value of a wide key, 0 to 255, or -1 if it is not in the
+	 *         map.
+	 */
+	public int get(long high, long low) {
+		checkKey(high, true);
+		long hash = hash(high, low);
+		ByteBuffer segment = segment(hash);
+		int slot = (int) hash & slotMask;
+		if (low != 0) {
+			int value = find(segment, slot, high, low);
+			if (value >= 0) {
+				return value;
+			}
+		}
+		synchronized (segment) {
+			return find(segment, slot, high, low);
+		}
+	}
+
+	private int find(ByteBuffer segment, int slot, long key) {
+		for (int probes = 0; probes < segmentSlots; probes++) {
+			long stored = segment.getLong(slot * 8);
+			if (stored == 0) {
+				return -1;
+			}
+			if ((stored & KEY_MASK) == key) {
+				return (int) (stored >>> VALUE_SHIFT);
+			}
+			slot = (slot + 1) & slotMask;
+		}
+		return -1;
+	}
+
+	private int find(ByteBuffer segment, int slot, long high, long low) {
+		for (int probes = 0; probes < segmentSlots; probes++) {
+			long stored = segment.getLong(slot * 16);
+			if (stored == 0) {
+				return -1;
+			}
+			if ((stored & KEY_MASK) == high
+					&& segment.getLong(slot * 16 + 8) == low) {
+				return (int) (stored >>> VALUE_SHIFT);
+			}
+			slot = (slot + 1) & slotMask;
+		}
+		return -1;
+	}
+
+	public boolean contains(long key) {
+		return get(key) >= 0;
+	}
+
+	public boolean contains(long high, long low) {
+		return get(high, low) >= 0;
+	}
+
+	/**
+	 * Adds a narrow key unless it is there already.
+	 *
+	 * @throws IllegalStateException
+	 *             If every slot of the key's segment is taken.
+	 *
+	 * @param key
+	 *            Not 0, and less than 2 to the power 56.
+	 * @param value
+	 *            0 to 255.
+	 * @return True if this call added the key, false if it was there already,
+	 *         with whatever value it was given then.
+	 */
+	public boolean putIfAbsent(long key, int value) {
+		checkKey(key, false);
+		long hash = hash(key, 0);
+		ByteBuffer segment = segment(hash);
+		int slot = (int) hash & slotMask;
+		synchronized (segment) {
+			for (int probes = 0; probes < segmentSlots; probes++) {
+				long stored = segment.getLong(slot * 8);
+				if (stored == 0) {
+					segment.putLong(slot * 8, key | (long) (value & 0xFF)
+							<< VALUE_SHIFT);
+					size.incrementAndGet();
+					return true;
+				}
+				if ((stored & KEY_MASK) == key) {
+					return false;
+				}
+				slot = (slot + 1) & slotMask;
+			}
+		}
+		throw new IllegalStateException("The map is full.");
+	}
+
+	/**
+	 * Adds a wide key unless it is there already.
+	 *
+	 * @throws IllegalStateException
+	 *             If every slot of the key's segment is taken.
+	 *
+	 * @param high
+	 *            Not 0, and less than 2 to the power 56.
+	 * @param low
+	 * @param value
+	 *            0 to 255.
+	 * @return True if this call added the key, false if it was there already,
+	 *         with whatever value it was given then.
+	 */
+	public boolean putIfAbsent(long high, long low, int value) {
+		checkKey(high, true);
+		long hash = hash(high, low);
+		ByteBuffer segment = segment(hash);
+		int slot = (int) hash & slotMask;
+		synchronized (segment) {
+			for (int probes = 0; probes < segmentSlots; probes++) {
+				long stored = segment.getLong(slot * 16);
+				if (stored == 0) {
+					segment.putLong(slot * 16 + 8, low);
+					segment.putLong(slot * 16, high | (long) (value & 0xFF)
+							<< VALUE_SHIFT);
+					size.incrementAndGet();
+					return true;
+				}
+				if ((stored & KEY_MASK) == high
+						&& segment.getLong(slot * 16 + 8) == low) {
+					return false;
+				}
+				slot = (slot + 1) & slotMask;
+			}
+		}
+		throw new IllegalStateException("The map is full.");
+	}
+
+	/**
+	 * @return Number of states added.
+	 */
+	public long size() {
+		return size.get();
+	}
+
+	/**
+	 * @return Number of slots, more than the most states the map can hold.
+	 */
+	public long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Bytes of memory the map takes outside the heap.
+	 */
+	public long memoryUsed() {
+		return segments == null ? 0 : capacity * slotBytes;
+	}
+
+	/**
+	 * @return True if keys are two longs.
+	 */
+	public boolean isWide() {
+		return wide;
+	}
+
+	/**
+	 * Empties the map. No other thread may be using it.
+	 */
+	public void clear() {
+		checkOpen();
+		for (ByteBuffer segment : segments) {
+			for (int i = 0; i < segment.capacity(); i += 8) {
+				segment.putLong(i, 0);
+			}
+		}
+		size.set(0);
+	}
+
+	/**
+	 * Lets go of the buffers. No other thread may be using the map, and it
+	 * cannot be used again.
+	 */
+	@Override
+	public void close() {
+		segments = null;
+	}
+
+	private ByteBuffer segment(long hash) {
+		return segments[(int) (hash >>> 32) & segmentMask];
+	}
+
+	private void checkKey(long key, boolean wideKey) {
+		checkOpen();
+		if (wideKey != wide) {
+			throw new IllegalArgumentException(wide ? "Keys are two longs."
+					: "Keys are one long.");
+		}
+		if (key <= 0 || key > KEY_MASK) {
+			throw new IllegalArgumentException("Bad key " + key);
+		}
+	}
+
+	private void checkOpen() {
+		if (segments == null) {
+			throw new IllegalStateException("The map is closed.");
+		}
+	}
+
+	/**
+	 * As for PackedStateMap, every bit of the key is mixed into the bits the
+	 * segment and slot are taken from.
+	 */
+	private static long hash(long high, long low) {
+		long h = high * 0x9E3779B97F4A7C15L ^ low;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+}
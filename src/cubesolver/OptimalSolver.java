@@ -0,0 +1,175 @@
+package cubesolver;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds the shortest way to solve a cube with iterative deepening A*. The
+ * search looks at every sequence of moves up to a depth, skipping any that
+ * the pattern databases show cannot finish in time, and raises the depth by
+ * one until a solution turns up, so the first one found is as short as
+ * possible.
+ * 
+ * Every call to changeCube counts as one move, including the middle slices.
+ * 
+ * @author Andrew
+ * 
+ */
+public class OptimalSolver implements Solver {
+	/**
+	 * No cube needs more moves than this.
+	 */
+	private static final int MAX_DEPTH = 40;
+	/**
+	 * The search checks for being interrupted, and tells the listener how
+	 * it is going, each time this many more positions have been looked at:
+	 * a couple of milliseconds apart.
+	 */
+	private static final int CHECK_MASK = (1 << 14) - 1;
+
+	private final PatternDatabase tables;
+	private final int[] path = new int[MAX_DEPTH];
+	private long nodes;
+	private ProgressListener listener;
+
+	/**
+	 * Told how a search is going, on the thread doing the search.
+	 */
+	public interface ProgressListener {
+		/**
+		 * @param depth
+		 *            Length of the solutions being looked for.
+		 * @param nodes
+		 *            Positions looked at so far by this solve.
+		 */
+		void progress(int depth, long nodes);
+	}
+
+	/**
+	 * Makes a solver using the shared pattern databases, building them if
+	 * need be.
+	 */
+	public OptimalSolver() {
+		this(PatternDatabase.getInstance());
+	}
+
+	/**
+	 * Makes a solver using the given pattern databases.
+	 * 
+	 * @param tables
+	 */
+	OptimalSolver(PatternDatabase tables) {
+		this.tables = tables;
+	}
+
+	@Override
+	public int[] solve(Cube cube) {
+		int[] solution = solve(cube, MAX_DEPTH - 1);
+		if (solution == null) {
+			throw new IllegalStateException("No solution within " + MAX_DEPTH
+					+ " moves.");
+		}
+		return solution;
+	}
+
+	/**
+	 * Finds the shortest solution if it is no longer than a limit, for
+	 * looking for something better than a solution already known.
+	 * 
+	 * If the thread is interrupted the search stops within a few
+	 * milliseconds with a CancellationException.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the cube is in a state that cannot be solved.
+	 * @throws CancellationException
+	 *             If the thread was interrupted.
+	 * 
+	 * @param cube
+	 *            The cube to solve.
+	 * @param maxLength
+	 *            Most moves wanted.
+	 * @return Move ids as for solve, or null if every solution is longer.
+	 */
+	public int[] solve(Cube cube, int maxLength) {
+		byte[] stickers = cube.stickers();
+		int rotation = Rotations.homeRotation(stickers);
+		CubieCube start = CubieCube.fromStickers(Rotations.toCentreFrame(
+				stickers, rotation));
+		start.verify();
+		int perm = start.getCornerPerm();
+		int twist = start.getTwist();
+		int low = start.getEdgeSubset(PatternDatabase.LOW_EDGES);
+		int high = start.getEdgeSubset(PatternDatabase.HIGH_EDGES);
+		nodes = 0;
+		for (int bound = tables.estimate(perm, twist, low, high); bound <= Math
+				.min(maxLength, MAX_DEPTH - 1); bound++) {
+			checkpoint(bound);
+			int length = search(perm, twist, low, high, 0, bound, -1);
+			if (length >= 0) {
+				return Rotations.toPhysical(rotation,
+						Arrays.copyOf(path, length));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param listener
+	 *            Told how each search is going, or null for none.
+	 */
+	public void setProgressListener(ProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return The number of positions looked at by the last solve.
+	 */
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Looks for a solution from the given position in at most bound moves in
+	 * total.
+	 * 
+	 * @return The length of the solution found, or -1 if there is none.
+	 */
+	private int search(int perm, int twist, int low, int high, int depth,
+			int bound, int last) {
+		if ((++nodes & CHECK_MASK) == 0) {
+			checkpoint(bound);
+		}
+		int estimate = tables.estimate(perm, twist, low, high);
+		if (estimate == 0) {
+			return depth;
+		}
+		if (depth + estimate > bound) {
+			return -1;
+		}
+		for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+			if (MoveSimplifier.isRedundant(depth > 1 ? path[depth - 2] : -1,
+					last, move)) {
+				continue;
+			}
+			path[depth] = move;
+			int length = search(
+					tables.cornerPermMove[perm * MoveTable.MOVE_COUNT + move],
+					tables.twistMove[twist * MoveTable.MOVE_COUNT + move],
+					tables.moveEdges(low, move), tables.moveEdges(high, move),
+					depth + 1, bound, move);
+			if (length >= 0) {
+				return length;
+			}
+		}
+		return -1;
+	}
+
+	private void checkpoint(int bound) {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("Solve interrupted.");
+		}
+		if (listener != null) {
+			listener.progress(bound, nodes);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from 120 bit keys to byte values, kept in one array of longs
+ * with open addressing so an entry costs 16 bytes and no object. Used for
+ * the states a breadth first search has seen, which can run to millions.
+ *
+ * A key is two longs. The high one may use only its low 56 bits, since the
+ * value is kept in the top 8 bits beside it, and must never be 0, which
+ * marks an empty slot. Both halves of a slot sit next to each other, so a
+ * lookup usually reads one cache line.
+ *
+ * The map only grows when told to, so it can be walked slot by slot while
+ * entries are being added, as long as it was made big enough first.
+ *
+ * @author Andrew
+ *
+ */
+final class PackedStateMap {
+	/**
+	 * Bytes each slot takes.
+	 */
+	static final int SLOT_BYTES = 16;
+	private static final int VALUE_SHIFT = 56;
+	private static final long KEY_MASK = (1L << VALUE_SHIFT) - 1;
+
+	/**
+	 * Slot i is the high half and value at 2i and the low half at 2i + 1.
+	 */
+	private long[] slots;
+	private int mask;
+	private int size;
+
+	/**
+	 * @param capacity
+	 *            Number of slots, a power of two no more than 1 << 29.
+	 */
+	PackedStateMap(int capacity) {
+		slots = new long[capacity * 2];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @param entries
+	 *            Entries to hold.
+	 * @return Slots needed to hold them at most half full.
+	 */
+	static long capacityFor(long entries) {
+		return Math.max(16, Long.highestOneBit(Math.max(1, entries * 2) - 1) << 1);
+	}
+
+	/**
+	 * Makes room for more entries, moving every entry to a new slot.
+	 *
+	 * @param capacity
+	 *            Number of slots, a power of two at least twice the size
+	 *            and no more than 1 << 29.
+	 */
+	void resize(int capacity) {
+		long[] old = slots;
+		slots = new long[capacity * 2];
+		mask = capacity - 1;
+		size = 0;
+		for (int i = 0; i < old.length; i += 2) {
+			if (old[i] != 0) {
+				putIfAbsent(old[i] & KEY_MASK, old[i + 1],
+						(int) (old[i] >>> VALUE_SHIFT));
+			}
+		}
+	}
+
+	/**
+	 * @return The value of a key, 0 to 255, or -1 if it is not in the map.
+	 */
+	int get(long high, long low) {
+		int slot = hash(high, low) & mask;
+		long stored;
+		while ((stored = slots[slot * 2]) != 0) {
+			if ((stored & KEY_MASK) == high && slots[slot * 2 + 1] == low) {
+				return (int) (stored >>> VALUE_SHIFT);
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds a key unless it is there already. There must be an empty slot.
+	 *
+	 * @param high
+	 *            Not 0, and less than 2 to the power 56.
+	 * @param low
+	 * @param value
+	 *            0 to 255.
+	 * @return True if the key was added.
+	 */
+	boolean putIfAbsent(long high, long low, int value) {
+		int slot = hash(high, low) & mask;
+		long stored;
+		while ((stored = slots[slot * 2]) != 0) {
+			if ((stored & KEY_MASK) == high && slots[slot * 2 + 1] == low) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		slots[slot * 2] = high | (long) value << VALUE_SHIFT;
+		slots[slot * 2 + 1] = low;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Empties the map, keeping its slots.
+	 */
+	void clear() {
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return The high half of the key in a slot, or 0 if it is empty.
+	 */
+	long high(int slot) {
+		return slots[slot * 2] & KEY_MASK;
+	}
+
+	long low(int slot) {
+		return slots[slot * 2 + 1];
+	}
+
+	int value(int slot) {
+		return (int) (slots[slot * 2] >>> VALUE_SHIFT);
+	}
+
+	/**
+	 * Mixes every bit of the key into every bit of the hash. The slot is taken
+	 * from the low bits, and the low bits of a key only say where the last
+	 * corner and edge are, so a plain multiply would crowd the keys together.
+	 */
+	private static int hash(long high, long low) {
+		long h = high * 0x9E3779B97F4A7C15L ^ low;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return (int) (h ^ (h >>> 33));
+	}
+}
@@ -0,0 +1,302 @@
+package cubesolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The optimal solver spread over several threads. Each depth of the
+ * iterative deepening is split at the first few moves into fork/join tasks,
+ * and idle threads steal whole subtrees from busy ones. All tasks share the
+ * pattern databases, which are only read, and stop as soon as any of them
+ * finds a solution at the current depth, since no other can be shorter.
+ *
+ * The solution is as short as OptimalSolver's, but when there are several
+ * of that length which one comes back depends on the threads.
+ *
+ * Solvers made without a pool of their own share one pool with a thread
+ * for each processor, so making one per thread costs no more threads. As
+ * for OptimalSolver, interrupting the thread that called solve stops the
+ * search with a CancellationException: the tasks look at that thread every
+ * CHECK_MASK positions and tell each other through a flag.
+ *
+ * @author Andrew
+ *
+ */
+public class ParallelOptimalSolver implements Solver {
+	/**
+	 * No cube needs more moves than this.
+	 */
+	private static final int MAX_DEPTH = 40;
+	/**
+	 * Each move before this depth gets a task of its own.
+	 */
+	private static final int SPLIT_DEPTH = 3;
+	/**
+	 * Subtrees with fewer moves than this left are too small to split.
+	 */
+	private static final int MIN_SPLIT_MOVES = 5;
+	/**
+	 * Positions each task looks at between checks for being interrupted.
+	 */
+	private static final int CHECK_MASK = (1 << 14) - 1;
+
+	private final PatternDatabase tables;
+	private final ForkJoinPool pool;
+	private final AtomicLong nodes = new AtomicLong();
+	/**
+	 * The thread in solve, and whether it has been interrupted.
+	 */
+	private volatile Thread caller;
+	private volatile boolean cancelled;
+
+	/**
+	 * The pool shared by every solver made without one, made when first
+	 * needed. Its threads are daemons, so it never has to be shut down.
+	 */
+	private static final class SharedPool {
+		static final ForkJoinPool POOL = new ForkJoinPool(Runtime
+				.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Makes a solver using the shared pool, with a thread for each
+	 * processor, and the shared pattern databases.
+	 */
+	public ParallelOptimalSolver() {
+		this(PatternDatabase.getInstance(), SharedPool.POOL);
+	}
+
+	/**
+	 * Makes a solver with its own pool of the given number of threads, using
+	 * the shared pattern databases. Call shutdown when finished with it.
+	 *
+	 * @param threads
+	 */
+	public ParallelOptimalSolver(int threads) {
+		this(PatternDatabase.getInstance(), new ForkJoinPool(threads));
+	}
+
+	/**
+	 * Makes a solver that runs its tasks in the given pool.
+	 *
+	 * @param tables
+	 * @param pool
+	 */
+	ParallelOptimalSolver(PatternDatabase tables, ForkJoinPool pool) {
+		this.tables = tables;
+		this.pool = pool;
+	}
+
+	/**
+	 * If the thread is interrupted the search stops within a few
+	 * milliseconds with a CancellationException.
+	 */
+	@Override
+	public int[] solve(Cube cube) {
+		byte[] stickers = cube.stickers();
+		int rotation = Rotations.homeRotation(stickers);
+		CubieCube start = CubieCube.fromStickers(Rotations.toCentreFrame(
+				stickers, rotation));
+		start.verify();
+		int perm = start.getCornerPerm();
+		int twist = start.getTwist();
+		int low = start.getEdgeSubset(PatternDatabase.LOW_EDGES);
+		int high = start.getEdgeSubset(PatternDatabase.HIGH_EDGES);
+		nodes.set(0);
+		caller = Thread.currentThread();
+		cancelled = false;
+		try {
+			for (int bound = tables.estimate(perm, twist, low, high); bound < MAX_DEPTH; bound++) {
+				AtomicReference<int[]> solution = new AtomicReference<int[]>();
+				SearchTask task = new SearchTask(solution, bound, perm, twist,
+						low, high, 0, -1, new int[MAX_DEPTH]);
+				pool.execute(task);
+				try {
+					// Waiting in invoke would hide the interrupt from the
+					// tasks until the whole depth was searched.
+					task.get();
+				} catch (InterruptedException e) {
+					cancelled = true;
+					task.quietlyJoin();
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+				if (cancelled || caller.isInterrupted()) {
+					throw new CancellationException("Solve interrupted.");
+				}
+				if (solution.get() != null) {
+					return Rotations.toPhysical(rotation, solution.get());
+				}
+			}
+		} finally {
+			caller = null;
+		}
+		throw new IllegalStateException("No solution within " + MAX_DEPTH
+				+ " moves.");
+	}
+
+	/**
+	 * @return The number of positions looked at by the last solve.
+	 */
+	public long getNodeCount() {
+		return nodes.get();
+	}
+
+	/**
+	 * @return The number of threads searching.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Stops the threads of the solver's own pool. The solver cannot be used
+	 * afterwards. Does nothing to the shared pool.
+	 */
+	public void shutdown() {
+		if (pool != SharedPool.POOL) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return True if the search should stop because the caller was
+	 *         interrupted.
+	 */
+	private boolean checkCancelled() {
+		if (!cancelled) {
+			Thread thread = caller;
+			if (thread != null && thread.isInterrupted()) {
+				cancelled = true;
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Searches everything below one position for a solution of exactly
+	 * bound moves, splitting into a task per move near the top of the tree.
+	 */
+	private final class SearchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicReference<int[]> solution;
+		private final int bound;
+		private final int perm;
+		private final int twist;
+		private final int low;
+		private final int high;
+		private final int depth;
+		private final int last;
+		private final int[] path;
+		private long count;
+
+		SearchTask(AtomicReference<int[]> solution, int bound, int perm,
+				int twist, int low, int high, int depth, int last, int[] path) {
+			this.solution = solution;
+			this.bound = bound;
+			this.perm = perm;
+			this.twist = twist;
+			this.low = low;
+			this.high = high;
+			this.depth = depth;
+			this.last = last;
+			this.path = path;
+		}
+
+		@Override
+		protected void compute() {
+			if (checkCancelled()) {
+				return;
+			}
+			if (depth < SPLIT_DEPTH && bound - depth >= MIN_SPLIT_MOVES) {
+				split();
+			} else {
+				search(perm, twist, low, high, depth, last);
+			}
+			nodes.addAndGet(count);
+		}
+
+		private void split() {
+			if ((++count & CHECK_MASK) == 0 && checkCancelled()) {
+				return;
+			}
+			int estimate = tables.estimate(perm, twist, low, high);
+			if (estimate == 0) {
+				found(depth);
+				return;
+			}
+			if (depth + estimate > bound || solution.get() != null
+					|| cancelled) {
+				return;
+			}
+			List<SearchTask> tasks = new ArrayList<SearchTask>();
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				if (MoveSimplifier.isRedundant(depth > 1 ? path[depth - 2]
+						: -1, last, move)) {
+					continue;
+				}
+				int[] childPath = Arrays.copyOf(path, MAX_DEPTH);
+				childPath[depth] = move;
+				tasks.add(new SearchTask(solution, bound,
+						tables.cornerPermMove[perm * MoveTable.MOVE_COUNT
+								+ move], tables.twistMove[twist
+								* MoveTable.MOVE_COUNT + move],
+						tables.moveEdges(low, move), tables.moveEdges(high,
+								move), depth + 1, move, childPath));
+			}
+			invokeAll(tasks);
+		}
+
+		/**
+		 * Depth first search as in OptimalSolver, giving up once any task
+		 * has found a solution or the search is cancelled.
+		 *
+		 * @return True if a solution was found here or elsewhere, or the
+		 *         search was cancelled.
+		 */
+		private boolean search(int perm, int twist, int low, int high,
+				int depth, int last) {
+			if (solution.get() != null || cancelled) {
+				return true;
+			}
+			if ((++count & CHECK_MASK) == 0 && checkCancelled()) {
+				return true;
+			}
+			int estimate = tables.estimate(perm, twist, low, high);
+			if (estimate == 0) {
+				found(depth);
+				return true;
+			}
+			if (depth + estimate > bound) {
+				return false;
+			}
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				if (MoveSimplifier.isRedundant(depth > 1 ? path[depth - 2]
+						: -1, last, move)) {
+					continue;
+				}
+				path[depth] = move;
+				if (search(tables.cornerPermMove[perm * MoveTable.MOVE_COUNT
+						+ move], tables.twistMove[twist * MoveTable.MOVE_COUNT
+						+ move], tables.moveEdges(low, move),
+						tables.moveEdges(high, move), depth + 1, move)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void found(int length) {
+			solution.compareAndSet(null, Arrays.copyOf(path, length));
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package cubesolver;
+
+import java.io.IOException;
+
+/**
+ * Pattern databases for the optimal solver. One table gives the number of
+ * moves needed to solve the corners alone, and two more give the number
+ * needed to solve each half of the edges alone. The largest of the three
+ * can never be more than the moves needed to solve the whole cube, so it is
+ * a safe estimate for iterative deepening.
+ *
+ * The tables are built in the centre frame with all 18 moves and take about
+ * 90MB. Building them takes a while, so one copy is shared, and the three
+ * pruning tables are mapped from files made by TableGenerator when they
+ * are there.
+ *
+ * @author Andrew
+ *
+ */
+public final class PatternDatabase {
+	/**
+	 * First edge of the low edge subset.
+	 */
+	static final int LOW_EDGES = 0;
+	/**
+	 * First edge of the high edge subset.
+	 */
+	static final int HIGH_EDGES = 6;
+
+	private static PatternDatabase instance;
+
+	/**
+	 * cornerPermMove[perm * 18 + move] is the corner permutation after the
+	 * move.
+	 */
+	final int[] cornerPermMove;
+	/**
+	 * twistMove[twist * 18 + move] is the twist after the move.
+	 */
+	final short[] twistMove;
+	/**
+	 * edgeMove[(subset / 64) * 18 + move] is the edge subset after the move
+	 * if none of the six edges were flipped. The flips before the move are
+	 * XORed in.
+	 */
+	final int[] edgeMove;
+
+	final PruningTable corners;
+	final PruningTable lowEdges;
+	final PruningTable highEdges;
+
+	final int solvedLowEdges;
+	final int solvedHighEdges;
+
+	/**
+	 * @param load
+	 *            False to build the pruning tables even if there are files.
+	 */
+	PatternDatabase(boolean load) {
+		cornerPermMove = new int[CubieCube.CORNER_PERMS * MoveTable.MOVE_COUNT];
+		twistMove = new short[CubieCube.TWISTS * MoveTable.MOVE_COUNT];
+		edgeMove = new int[CubieCube.EDGE_SUBSETS / 64 * MoveTable.MOVE_COUNT];
+		buildMoveTables();
+
+		CubieCube solved = new CubieCube();
+		solvedLowEdges = solved.getEdgeSubset(LOW_EDGES);
+		solvedHighEdges = solved.getEdgeSubset(HIGH_EDGES);
+
+		corners = PruningTable.open("corners", CubieCube.CORNER_PERMS
+				* CubieCube.TWISTS,
+				cornerIndex(solved.getCornerPerm(), solved.getTwist()),
+				MoveTable.MOVE_COUNT,
+				new PruningTable.Coordinate() {
+					@Override
+					int move(int index, int move) {
+						int perm = index / CubieCube.TWISTS;
+						int twist = index % CubieCube.TWISTS;
+						return cornerIndex(cornerPermMove[perm
+								* MoveTable.MOVE_COUNT + move],
+								twistMove[twist * MoveTable.MOVE_COUNT + move]);
+					}
+				}, load);
+		PruningTable.Coordinate edges = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				return moveEdges(index, move);
+			}
+		};
+		lowEdges = PruningTable.open("lowEdges", CubieCube.EDGE_SUBSETS,
+				solvedLowEdges, MoveTable.MOVE_COUNT, edges, load);
+		highEdges = PruningTable.open("highEdges", CubieCube.EDGE_SUBSETS,
+				solvedHighEdges, MoveTable.MOVE_COUNT, edges, load);
+	}
+
+	/**
+	 * Writes the pruning tables to their files.
+	 *
+	 * @throws IOException
+	 */
+	void save() throws IOException {
+		TableFile.save("corners", corners);
+		TableFile.save("lowEdges", lowEdges);
+		TableFile.save("highEdges", highEdges);
+	}
+
+	/**
+	 * Returns the shared tables, building them the first time.
+	 *
+	 * @throws java.util.concurrent.CancellationException
+	 *             If the thread is interrupted while the table files are read.
+	 *             Nothing is kept, so the next call starts again.
+	 *
+	 * @return The tables.
+	 */
+	public static synchronized PatternDatabase getInstance() {
+		if (instance == null) {
+			instance = new PatternDatabase(true);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param perm
+	 *            Corner permutation coordinate.
+	 * @param twist
+	 *            Corner twist coordinate.
+	 * @return The index of the corner table.
+	 */
+	static int cornerIndex(int perm, int twist) {
+		return perm * CubieCube.TWISTS + twist;
+	}
+
+	/**
+	 * @param subset
+	 *            An edge subset coordinate.
+	 * @param move
+	 *            A centre frame move id.
+	 * @return The edge subset coordinate after the move.
+	 */
+	int moveEdges(int subset, int move) {
+		return edgeMove[(subset >> 6) * MoveTable.MOVE_COUNT + move]
+				^ (subset & 63);
+	}
+
+	/**
+	 * Gives the least number of moves the cube could be solved in.
+	 *
+	 * @param perm
+	 *            Corner permutation coordinate.
+	 * @param twist
+	 *            Corner twist coordinate.
+	 * @param low
+	 *            Low edge subset coordinate.
+	 * @param high
+	 *            High edge subset coordinate.
+	 * @return The estimate.
+	 */
+	int estimate(int perm, int twist, int low, int high) {
+		int estimate = corners.get(cornerIndex(perm, twist));
+		estimate = Math.max(estimate, lowEdges.get(low));
+		return Math.max(estimate, highEdges.get(high));
+	}
+
+	private void buildMoveTables() {
+		CubieCube cube = new CubieCube();
+		CubieCube moved = new CubieCube();
+		for (int perm = 0; perm < CubieCube.CORNER_PERMS; perm++) {
+			cube.setCornerPerm(perm);
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				CubieCube.multiply(cube, CubieCube.MOVES[move], moved);
+				cornerPermMove[perm * MoveTable.MOVE_COUNT + move] = moved
+						.getCornerPerm();
+			}
+		}
+		cube = new CubieCube();
+		for (int twist = 0; twist < CubieCube.TWISTS; twist++) {
+			cube.setTwist(twist);
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				CubieCube.multiply(cube, CubieCube.MOVES[move], moved);
+				twistMove[twist * MoveTable.MOVE_COUNT + move] = (short) moved
+						.getTwist();
+			}
+		}
+		cube = new CubieCube();
+		for (int positions = 0; positions < CubieCube.EDGE_SUBSETS / 64; positions++) {
+			cube.setEdgeSubset(LOW_EDGES, positions * 64);
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				CubieCube.multiply(cube, CubieCube.MOVES[move], moved);
+				edgeMove[positions * MoveTable.MOVE_COUNT + move] = moved
+						.getEdgeSubset(LOW_EDGES);
+			}
+		}
+	}
+}
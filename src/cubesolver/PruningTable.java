@@ -0,0 +1,206 @@
+package cubesolver;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A table of small distances, two to a byte. Solvers use these to look up
+ * how many moves at least are needed to solve part of the cube. The bytes
+ * are either on the heap or mapped from a file by TableFile.
+ *
+ * @author Andrew
+ *
+ */
+final class PruningTable {
+	/**
+	 * Value of an entry that has not been filled in yet.
+	 */
+	static final int UNKNOWN = 0xF;
+
+	private final ByteBuffer data;
+	private final int size;
+
+	/**
+	 * Makes a table with every entry unknown.
+	 *
+	 * @param size
+	 *            Number of entries.
+	 */
+	PruningTable(int size) {
+		this.size = size;
+		byte[] bytes = new byte[bytes(size)];
+		java.util.Arrays.fill(bytes, (byte) 0xFF);
+		data = ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * Makes a table over bytes that are already filled in.
+	 *
+	 * @param size
+	 *            Number of entries.
+	 * @param data
+	 *            The entries, two to a byte from position 0.
+	 */
+	PruningTable(int size, ByteBuffer data) {
+		if (data.capacity() != bytes(size)) {
+			throw new IllegalArgumentException("Wrong table length.");
+		}
+		this.size = size;
+		this.data = data;
+	}
+
+	/**
+	 * @param size
+	 *            Number of entries.
+	 * @return Number of bytes needed to hold them.
+	 */
+	static int bytes(int size) {
+		return (size + 1) / 2;
+	}
+
+	/**
+	 * @return Number of entries.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return A read only view of the bytes, for saving.
+	 */
+	ByteBuffer data() {
+		ByteBuffer view = data.asReadOnlyBuffer();
+		view.clear();
+		return view;
+	}
+
+	/**
+	 * @param index
+	 * @return The entry, 0 to 15.
+	 */
+	int get(int index) {
+		return (data.get(index >> 1) >> ((index & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * @param index
+	 * @param value
+	 *            0 to 15.
+	 */
+	void set(int index, int value) {
+		int shift = (index & 1) << 2;
+		int i = index >> 1;
+		data.put(i, (byte) ((data.get(i) & ~(0xF << shift)) | (value << shift)));
+	}
+
+	/**
+	 * Maps the named table from its file, or builds it if the file is
+	 * missing or stale.
+	 *
+	 * @throws java.util.concurrent.CancellationException
+	 *             If the thread is interrupted while the file is read.
+	 *
+	 * @param name
+	 *            Name of the table file.
+	 * @param size
+	 *            Number of entries.
+	 * @param start
+	 *            The entry for a solved cube.
+	 * @param moves
+	 *            Number of moves, numbered from 0, that coordinate knows.
+	 * @param coordinate
+	 *            How the entries are changed by each move.
+	 * @param load
+	 *            False to always build the table.
+	 * @return The table.
+	 */
+	static PruningTable open(String name, int size, int start, int moves,
+			Coordinate coordinate, boolean load) {
+		PruningTable table = load ? TableFile.load(name, size) : null;
+		if (table == null) {
+			table = new PruningTable(size);
+			table.fill(start, moves, coordinate);
+		}
+		return table;
+	}
+
+	/**
+	 * Fills the table with the number of moves each entry is from start,
+	 * searching outwards one move at a time. Entries 15 or more moves away
+	 * are left unknown, which still says they need at least 15.
+	 *
+	 * @param start
+	 *            The entry for a solved cube.
+	 * @param moves
+	 *            Number of moves, numbered from 0, that coordinate knows.
+	 * @param coordinate
+	 *            How the entries are changed by each move.
+	 */
+	void fill(int start, int moves, Coordinate coordinate) {
+		set(start, 0);
+		long done = 1;
+		for (int depth = 0; done < size && depth + 1 < UNKNOWN; depth++) {
+			long found = 0;
+			// Once most of the table is known it is quicker to look back
+			// from the unknown entries than forward from the last layer.
+			boolean backwards = done > size / 2;
+			for (int index = 0; index < size; index++) {
+				int value = get(index);
+				if (backwards) {
+					if (value != UNKNOWN) {
+						continue;
+					}
+					for (int move = 0; move < moves; move++) {
+						if (get(coordinate.move(index, move)) == depth) {
+							set(index, depth + 1);
+							found++;
+							break;
+						}
+					}
+				} else {
+					if (value != depth) {
+						continue;
+					}
+					for (int move = 0; move < moves; move++) {
+						int next = coordinate.move(index, move);
+						if (get(next) == UNKNOWN) {
+							set(next, depth + 1);
+							found++;
+							int[] alike = coordinate.alike(next);
+							for (int i = 0; alike != null && i < alike.length; i++) {
+								if (get(alike[i]) == UNKNOWN) {
+									set(alike[i], depth + 1);
+									found++;
+								}
+							}
+						}
+					}
+				}
+			}
+			if (found == 0) {
+				break;
+			}
+			done += found;
+		}
+	}
+
+	/**
+	 * The way a move changes an entry index.
+	 */
+	abstract static class Coordinate {
+		abstract int move(int index, int move);
+
+		/**
+		 * In a table reduced by symmetry, a symmetric class has more than one
+		 * entry for the same cubes, and looking forward from one cube may
+		 * reach a different entry than looking it up does. Each must be
+		 * filled in at once.
+		 *
+		 * @param index
+		 * @return The other entries for the same cubes as index, or null if
+		 *         there are none.
+		 */
+		int[] alike(int index) {
+			return null;
+		}
+	}
+}
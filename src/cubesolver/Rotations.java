@@ -0,0 +1,282 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * The 24 ways the whole cube can be turned in the hand, and the bookkeeping
+ * needed to search with the centres held still.
+ *
+ * Slices 2, 5 and 8 move centres, so the same arrangement of cubies can be
+ * shown with any face on top. A solver works in the centre frame instead:
+ * the cube is turned so every centre is back on its own face, and each move
+ * is followed by the turn that puts the centres back again. In that frame a
+ * middle slice move looks like the two outer faces of its axis turning in
+ * opposite directions, and the 18 moves keep the move ids of MoveTable. This
+ * class turns a list of centre frame moves back into the moves to make on
+ * the real cube.
+ *
+ * @author Andrew
+ *
+ */
+public final class Rotations {
+	/**
+	 * Number of ways to hold the cube.
+	 */
+	public static final int ROTATION_COUNT = 24;
+
+	/**
+	 * Sticker index of the centre of each face.
+	 */
+	private static final int[] CENTRES = { 4, 13, 22, 31, 40, 49 };
+
+	/**
+	 * The sticker permutation of each whole cube turn. Entry 0 is the
+	 * identity.
+	 */
+	private static final byte[][] ROTATIONS = new byte[ROTATION_COUNT][];
+	/**
+	 * The sticker permutation of each move in the centre frame.
+	 */
+	private static final byte[][] FRAME_MOVES = new byte[MoveTable.MOVE_COUNT][];
+	/**
+	 * For a cube turned by rotation r, PHYSICAL_MOVE[r][q] is the real move
+	 * that has the effect of centre frame move q.
+	 */
+	private static final int[][] PHYSICAL_MOVE = new int[ROTATION_COUNT][MoveTable.MOVE_COUNT];
+	/**
+	 * NEXT_ROTATION[r][m] is how the cube is turned after making real move m
+	 * on a cube turned by rotation r.
+	 */
+	private static final int[][] NEXT_ROTATION = new int[ROTATION_COUNT][MoveTable.MOVE_COUNT];
+
+	static {
+		// x turns the whole cube up, as slices 3, 2 and 1 turned backwards.
+		byte[] x = MoveTable.compose(new int[] { MoveTable.moveId(1, 3),
+				MoveTable.moveId(1, 2), MoveTable.moveId(1, 1) });
+		// y turns the whole cube left, as slices 7, 8 and 9 turned left.
+		byte[] y = MoveTable.compose(new int[] { MoveTable.moveId(0, 7),
+				MoveTable.moveId(0, 8), MoveTable.moveId(0, 9) });
+		ROTATIONS[0] = MoveTable.identity();
+		int count = 1;
+		for (int i = 0; i < count; i++) {
+			for (byte[] turn : new byte[][] { x, y }) {
+				byte[] rotation = MoveTable.compose(ROTATIONS[i], turn);
+				if (indexOf(rotation, count) < 0) {
+					ROTATIONS[count++] = rotation;
+				}
+			}
+		}
+		if (count != ROTATION_COUNT) {
+			throw new IllegalStateException("Expected " + ROTATION_COUNT
+					+ " rotations, found " + count);
+		}
+
+		for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+			FRAME_MOVES[move] = recentre(MoveTable.PERMUTATIONS[move]);
+		}
+
+		for (int r = 0; r < ROTATION_COUNT; r++) {
+			byte[] undo = MoveTable.invert(ROTATIONS[r]);
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				// From the centre frame back to the real cube, make the move,
+				// then turn the centres home again.
+				byte[] real = MoveTable.compose(undo,
+						MoveTable.PERMUTATIONS[move]);
+				int next = homeRotation(colors(real));
+				byte[] frame = MoveTable.compose(real, ROTATIONS[next]);
+				int frameMove = -1;
+				for (int q = 0; q < MoveTable.MOVE_COUNT; q++) {
+					if (Arrays.equals(frame, FRAME_MOVES[q])) {
+						frameMove = q;
+					}
+				}
+				if (frameMove < 0) {
+					throw new IllegalStateException("No frame move for move "
+							+ move);
+				}
+				PHYSICAL_MOVE[r][frameMove] = move;
+				NEXT_ROTATION[r][move] = next;
+			}
+		}
+	}
+
+	private Rotations() {
+	}
+
+	/**
+	 * Returns a copy of the sticker permutation of a whole cube turn.
+	 *
+	 * @param rotation
+	 *            0 to 23.
+	 * @return The permutation.
+	 */
+	public static byte[] permutation(int rotation) {
+		return ROTATIONS[rotation].clone();
+	}
+
+	/**
+	 * Returns the sticker permutation of a whole cube turn without copying
+	 * it, for reading stickers in the centre frame in place.
+	 *
+	 * @param rotation
+	 *            0 to 23.
+	 * @return The permutation, which must not be changed.
+	 */
+	static byte[] rotationPermutation(int rotation) {
+		return ROTATIONS[rotation];
+	}
+
+	/**
+	 * Returns the sticker permutation of a move in the centre frame. This is
+	 * package private so solvers can read it without copying.
+	 *
+	 * @param move
+	 *            A move id.
+	 * @return The permutation.
+	 */
+	static byte[] framePermutation(int move) {
+		return FRAME_MOVES[move];
+	}
+
+	/**
+	 * Works out which turn puts every centre of the stickers back on its own
+	 * face, face i having the color with ordinal i.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the centres are not the centres of a real cube.
+	 *
+	 * @param stickers
+	 *            Sticker colors indexed face * 9 + square.
+	 * @return The rotation, 0 to 23.
+	 */
+	public static int homeRotation(byte[] stickers) {
+		int rotation = findHomeRotation(stickers);
+		if (rotation < 0) {
+			throw new IllegalArgumentException("The centres are not valid.");
+		}
+		return rotation;
+	}
+
+	/**
+	 * As homeRotation, but without throwing.
+	 *
+	 * @param stickers
+	 *            Sticker colors indexed face * 9 + square.
+	 * @return The rotation, 0 to 23, or -1 if the centres are not the
+	 *         centres of a real cube.
+	 */
+	static int findHomeRotation(byte[] stickers) {
+		for (int r = 0; r < ROTATION_COUNT; r++) {
+			byte[] rotation = ROTATIONS[r];
+			boolean home = true;
+			for (int face = 0; face < CENTRES.length && home; face++) {
+				home = stickers[rotation[CENTRES[face]]] == face;
+			}
+			if (home) {
+				return r;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Turns the whole cube so its centres are home.
+	 *
+	 * @param stickers
+	 *            Sticker colors indexed face * 9 + square.
+	 * @param rotation
+	 *            The rotation from homeRotation.
+	 * @return The stickers of the turned cube.
+	 */
+	public static byte[] toCentreFrame(byte[] stickers, int rotation) {
+		byte[] frame = new byte[MoveTable.STICKERS];
+		MoveTable.apply(ROTATIONS[rotation], stickers, frame);
+		return frame;
+	}
+
+	/**
+	 * Turns the whole cube back from the centre frame, the reverse of
+	 * toCentreFrame.
+	 *
+	 * @param frame
+	 *            Sticker colors in the centre frame.
+	 * @param rotation
+	 *            The rotation that took the real cube to the centre frame.
+	 * @param stickers
+	 *            Set to the stickers of the real cube.
+	 */
+	public static void fromCentreFrame(byte[] frame, int rotation,
+			byte[] stickers) {
+		byte[] perm = ROTATIONS[rotation];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			stickers[perm[i]] = frame[i];
+		}
+	}
+
+	/**
+	 * Turns a list of moves found in the centre frame into moves on the real
+	 * cube.
+	 *
+	 * @param rotation
+	 *            The rotation that took the real cube to the centre frame when
+	 *            the moves start, from homeRotation.
+	 * @param frameMoves
+	 *            Centre frame move ids.
+	 * @return Move ids to make on the real cube.
+	 */
+	public static int[] toPhysical(int rotation, int[] frameMoves) {
+		int[] moves = new int[frameMoves.length];
+		int r = rotation;
+		for (int i = 0; i < frameMoves.length; i++) {
+			moves[i] = PHYSICAL_MOVE[r][frameMoves[i]];
+			r = NEXT_ROTATION[r][moves[i]];
+		}
+		return moves;
+	}
+
+	/**
+	 * Works out the rotation of the centre frame after a real move.
+	 *
+	 * @param rotation
+	 *            The rotation before the move.
+	 * @param move
+	 *            The real move id.
+	 * @return The rotation after the move.
+	 */
+	public static int nextRotation(int rotation, int move) {
+		return NEXT_ROTATION[rotation][move];
+	}
+
+	/**
+	 * Follows a permutation with the turn that brings the centres home.
+	 *
+	 * @param perm
+	 * @return The combined permutation, which leaves the centres in place.
+	 */
+	private static byte[] recentre(byte[] perm) {
+		return MoveTable.compose(perm, ROTATIONS[homeRotation(colors(perm))]);
+	}
+
+	/**
+	 * @param perm
+	 * @return The colors of a solved cube after perm is applied to it.
+	 */
+	private static byte[] colors(byte[] perm) {
+		byte[] solved = new byte[MoveTable.STICKERS];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			solved[i] = (byte) (i / 9);
+		}
+		byte[] moved = new byte[MoveTable.STICKERS];
+		MoveTable.apply(perm, solved, moved);
+		return moved;
+	}
+
+	private static int indexOf(byte[] rotation, int count) {
+		for (int i = 0; i < count; i++) {
+			if (Arrays.equals(rotation, ROTATIONS[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,346 @@
+package cubesolver;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes scrambles, either as random moves or as the moves to reach a random
+ * state.
+ *
+ * A random state is picked with every state equally likely: random corner
+ * and edge positions with matching parity, and random twists and flips. The
+ * two phase solver then finds how to solve it, and the scramble is that
+ * solution backwards. Random moves are quicker but, unless there are very
+ * many, some states are much more likely than others.
+ *
+ * Without a seed the moves come from ThreadLocalRandom, so threads never
+ * wait for each other. With a seed, scramble n from the seed is always the
+ * same, however many threads make them and in whatever order, since each
+ * gets its own generator seeded from the seed and n. The seed and n are
+ * mixed together rather than added, since generators whose starts differ by
+ * a multiple of SplitMix's step would give the same numbers a few draws
+ * apart.
+ *
+ * Usage: java cubesolver.Scrambler [-seed S] [-state] [-moves N]
+ * [-threads N] count output. Writes one scramble a line in the form
+ * BatchSolver reads. An output of - means the console.
+ *
+ * @author Andrew
+ *
+ */
+public class Scrambler {
+	/**
+	 * Length of a random move scramble, as Cube.scramble has always made.
+	 */
+	public static final int DEFAULT_LENGTH = 100;
+	/**
+	 * Scrambles made at once by each task of generate.
+	 */
+	private static final int CHUNK = 4096;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final ThreadLocal<TwoPhaseSolver> SOLVERS = new ThreadLocal<TwoPhaseSolver>() {
+		@Override
+		protected TwoPhaseSolver initialValue() {
+			return new TwoPhaseSolver();
+		}
+	};
+
+	private final boolean seeded;
+	private final long seed;
+	private final AtomicLong next = new AtomicLong();
+
+	/**
+	 * Makes a scrambler that is different every time.
+	 */
+	public Scrambler() {
+		this.seeded = false;
+		this.seed = 0;
+	}
+
+	/**
+	 * Makes a scrambler whose scrambles are the same every run.
+	 *
+	 * @param seed
+	 */
+	public Scrambler(long seed) {
+		this.seeded = true;
+		this.seed = seed;
+	}
+
+	/**
+	 * @param length
+	 *            Number of moves.
+	 * @return Random move ids. No move undoes the one before it.
+	 */
+	public int[] randomMoves(int length) {
+		return randomMoves(random(next.getAndIncrement()), length);
+	}
+
+	/**
+	 * @return Moves that take a solved cube to a random state, every state
+	 *         being equally likely. Builds the two phase tables if need be.
+	 */
+	public int[] randomState() {
+		return randomState(random(next.getAndIncrement()));
+	}
+
+	/**
+	 * Makes many scrambles at once on every processor. With a seed, scramble
+	 * i of the result is the same as scramble first + i of any other call.
+	 *
+	 * @param first
+	 *            Number of the first scramble.
+	 * @param count
+	 *            Number of scrambles.
+	 * @param state
+	 *            True for random states, false for random moves.
+	 * @param length
+	 *            Number of moves for random moves.
+	 * @param threads
+	 *            Number of threads to use.
+	 * @return The scrambles.
+	 * @throws InterruptedException
+	 */
+	public int[][] generate(long first, int count, boolean state, int length,
+			int threads) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<int[][]>> chunks = new ArrayList<Future<int[][]>>();
+			for (int start = 0; start < count; start += CHUNK) {
+				chunks.add(pool.submit(chunk(first + start,
+						Math.min(CHUNK, count - start), state, length)));
+			}
+			int[][] scrambles = new int[count][];
+			int done = 0;
+			for (Future<int[][]> chunk : chunks) {
+				int[][] part = get(chunk);
+				System.arraycopy(part, 0, scrambles, done, part.length);
+				done += part.length;
+			}
+			return scrambles;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		Scrambler scrambler = new Scrambler();
+		boolean state = false;
+		int length = DEFAULT_LENGTH;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+			if (args[i].equals("-seed")) {
+				scrambler = new Scrambler(Long.parseLong(args[++i]));
+			} else if (args[i].equals("-state")) {
+				state = true;
+			} else if (args[i].equals("-moves")) {
+				length = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (args.length - i != 2) {
+			System.err.println("Usage: java cubesolver.Scrambler [-seed S] "
+					+ "[-state] [-moves N] [-threads N] count output");
+			System.exit(2);
+		}
+		long count = Long.parseLong(args[i]);
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				args[i + 1].equals("-") ? System.out : new FileOutputStream(
+						args[i + 1]), UTF8));
+		long start = System.nanoTime();
+		try {
+			scrambler.write(count, state, length, threads, out);
+		} finally {
+			out.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d scrambles in %.1fs, %.0f a second%n", count,
+				seconds, count / seconds);
+	}
+
+	/**
+	 * Writes scrambles one a line, a chunk at a time so memory stays the
+	 * same however many there are.
+	 */
+	private void write(long count, boolean state, int length, int threads,
+			Writer out) throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		BlockingQueue<Future<int[][]>> pending = new ArrayBlockingQueue<Future<int[][]>>(
+				threads * 2);
+		long first = next.getAndAdd(count);
+		try {
+			for (long start = 0; start < count; start += CHUNK) {
+				Future<int[][]> chunk = pool.submit(chunk(first + start,
+						(int) Math.min(CHUNK, count - start), state, length));
+				if (!pending.offer(chunk)) {
+					write(get(pending.take()), out);
+					pending.put(chunk);
+				}
+			}
+			while (!pending.isEmpty()) {
+				write(get(pending.take()), out);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static void write(int[][] scrambles, Writer out)
+			throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int[] scramble : scrambles) {
+			line.setLength(0);
+			for (int i = 0; i < scramble.length; i++) {
+				if (i > 0) {
+					line.append(' ');
+				}
+				line.append(MoveTable.slice(scramble[i])).append('_')
+						.append(MoveTable.direction(scramble[i]));
+			}
+			out.append(line).append('\n');
+		}
+	}
+
+	private Callable<int[][]> chunk(final long first, final int count,
+			final boolean state, final int length) {
+		return new Callable<int[][]>() {
+			@Override
+			public int[][] call() {
+				int[][] scrambles = new int[count][];
+				for (int i = 0; i < count; i++) {
+					Random random = random(first + i);
+					scrambles[i] = state ? randomState(random) : randomMoves(
+							random, length);
+				}
+				return scrambles;
+			}
+		};
+	}
+
+	private static int[][] get(Future<int[][]> chunk)
+			throws InterruptedException {
+		try {
+			return chunk.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * @param index
+	 *            Number of the scramble.
+	 * @return The generator for that scramble.
+	 */
+	private Random random(long index) {
+		if (!seeded) {
+			return ThreadLocalRandom.current();
+		}
+		return new SplitMix(SplitMix.mix(seed ^ SplitMix.mix(index
+				+ SplitMix.GAMMA)));
+	}
+
+	private static int[] randomMoves(Random random, int length) {
+		int[] moves = new int[length];
+		for (int i = 0; i < length; i++) {
+			int move;
+			do {
+				move = random.nextInt(MoveTable.MOVE_COUNT);
+			} while (i > 0 && move == MoveTable.inverse(moves[i - 1]));
+			moves[i] = move;
+		}
+		return moves;
+	}
+
+	private static int[] randomState(Random random) {
+		CubieCube cubies = new CubieCube();
+		cubies.setCornerPerm(random.nextInt(CubieCube.CORNER_PERMS));
+		cubies.setTwist(random.nextInt(CubieCube.TWISTS));
+		cubies.setFlip(random.nextInt(TwoPhaseTables.FLIPS));
+		for (int i = CubieCube.EDGES - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			byte edge = cubies.ep[i];
+			cubies.ep[i] = cubies.ep[j];
+			cubies.ep[j] = edge;
+		}
+		// Swapping two edges pairs each odd arrangement with an even one, so
+		// the edges stay evenly spread.
+		if (CubieCube.parity(cubies.ep) != CubieCube.parity(cubies.cp)) {
+			byte edge = cubies.ep[0];
+			cubies.ep[0] = cubies.ep[1];
+			cubies.ep[1] = edge;
+		}
+		byte[] stickers = new byte[MoveTable.STICKERS];
+		cubies.toStickers(stickers);
+		Cube cube = new Cube();
+		cube.setStickers(stickers);
+		int[] solution = SOLVERS.get().solve(cube);
+		int[] scramble = new int[solution.length];
+		for (int i = 0; i < solution.length; i++) {
+			scramble[i] = MoveTable.inverse(solution[solution.length - 1 - i]);
+		}
+		return scramble;
+	}
+
+	/**
+	 * Steele, Lea and Flood's SplitMix64 generator, which is quick to seed
+	 * and gives well spread numbers even from seeds next to each other.
+	 */
+	private static final class SplitMix extends Random {
+		private static final long serialVersionUID = 1L;
+		static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+		private long state;
+
+		SplitMix(long seed) {
+			// Random's constructor has already called setSeed with a seed of
+			// its own, so state is set again here.
+			state = seed;
+		}
+
+		@Override
+		public synchronized void setSeed(long seed) {
+			state = seed;
+		}
+
+		@Override
+		public long nextLong() {
+			return mix(state += GAMMA);
+		}
+
+		/**
+		 * Spreads every bit of z over every bit of the result.
+		 */
+		static long mix(long z) {
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+
+		@Override
+		protected int next(int bits) {
+			return (int) (nextLong() >>> (64 - bits));
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package cubesolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers solutions to cubes that have been solved before, up to a fixed
+ * number of them. When it is full the solution used least recently is
+ * forgotten. Cubes are looked up by their canonical form from Symmetry, so
+ * one entry serves a state in any orientation, mirrored or recoloured.
+ *
+ * The cache is split into segments by the hash of the state, each with its
+ * own lock, so threads solving different cubes rarely wait for each other
+ * and there is no lock over the whole cache. Each segment keeps its own
+ * least recently used order, so the one forgotten is the oldest in its
+ * segment rather than in the whole cache.
+ *
+ * @author Andrew
+ *
+ */
+public class SolutionCache {
+	/**
+	 * Number of segments. A power of two.
+	 */
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            Most solutions to keep.
+	 */
+	public SolutionCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		for (int i = 0; i < SEGMENTS; i++) {
+			// Spread the capacity so the segments add up to it.
+			int size = capacity / SEGMENTS + (i < capacity % SEGMENTS ? 1 : 0);
+			segments[i] = new Segment(Math.max(size, 1));
+		}
+	}
+
+	/**
+	 * Looks up the solution for a state.
+	 *
+	 * @param key
+	 * @return A copy of the solution, or null if it is not known.
+	 */
+	int[] get(StateKey key) {
+		int[] solution = segment(key).get(key);
+		if (solution == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return solution.clone();
+	}
+
+	/**
+	 * Stores the solution for a state.
+	 *
+	 * @param key
+	 * @param solution
+	 *            Copied, so the caller may change it afterwards.
+	 */
+	void put(StateKey key, int[] solution) {
+		segment(key).put(key, solution.clone());
+	}
+
+	/**
+	 * @param cube
+	 * @return A solution for the cube's state, or null if it is not known.
+	 */
+	public int[] get(Cube cube) {
+		Symmetry.Canonical canonical = Symmetry.canonical(cube.stickers());
+		int[] solution = get(canonical.key);
+		return solution == null ? null : Symmetry.fromCanonical(
+				canonical.symmetry, solution);
+	}
+
+	/**
+	 * @param cube
+	 * @param solution
+	 *            Moves that solve the cube as it is now.
+	 */
+	public void put(Cube cube, int[] solution) {
+		Symmetry.Canonical canonical = Symmetry.canonical(cube.stickers());
+		put(canonical.key, Symmetry.toCanonical(canonical.symmetry, solution));
+	}
+
+	/**
+	 * @return Number of solutions held.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Forgets every solution. The counters are kept.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return Number of lookups that found a solution.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of lookups that found nothing.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Number of solutions forgotten to make room.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return String.format("%d cached, %d hits, %d misses, %d evictions, "
+				+ "%.1f%% hit rate", size(), hits, getMisses(),
+				getEvictions(), total == 0 ? 0.0 : 100.0 * hits / total);
+	}
+
+	private Segment segment(StateKey key) {
+		// The low bits of the Zobrist hash are as good as any.
+		return segments[(int) key.hash() & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * One part of the cache, a map kept in order of use.
+	 */
+	private final class Segment {
+		private final Map<StateKey, int[]> map;
+
+		Segment(final int capacity) {
+			map = new LinkedHashMap<StateKey, int[]>(capacity * 4 / 3 + 1,
+					0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<StateKey, int[]> eldest) {
+					if (size() > capacity) {
+						evictions.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized int[] get(StateKey key) {
+			return map.get(key);
+		}
+
+		synchronized void put(StateKey key, int[] solution) {
+			map.put(key, solution);
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+
+		synchronized void clear() {
+			map.clear();
+		}
+	}
+}
@@ -0,0 +1,442 @@
+package cubesolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Solves cubes sent over HTTP, using the server built into the JDK.
+ *
+ * GET /solve?cube=... or POST /solve with the cube as the body. The cube is
+ * written as for BatchSolver, either a scramble such as "7_0 3_1" or "R U2"
+ * or 54 sticker letters. Also takes mode, TWO_PHASE by default, OPTIMAL or
+ * BIDIRECTIONAL, and deadline, the most milliseconds to spend, which cannot
+ * be more than the server's own. The answer is JSON:
+ *
+ * <pre>
+ * {"solution":"7_1 3_0","notation":"U' R'","length":2,"mode":"TWO_PHASE",
+ *  "solveMicros":85,"totalMicros":140}
+ * </pre>
+ *
+ * or {"error":"..."} with status 400 for a bad cube, 429 when too many
+ * requests are waiting, or 504 when the deadline passed first. GET /stats
+ * gives the counts so far and the times taken, in milliseconds, from a
+ * request being taken to its answer being sent.
+ *
+ * Requests are taken on the server's one dispatch thread and solved on a
+ * fixed pool. Only so many may be solving or waiting at once; past that
+ * they are turned away straight away rather than queued, so a burst cannot
+ * make every request late. The deadline is counted from when the request
+ * was taken, so time spent waiting counts, and an optimal search still
+ * running at the deadline is interrupted. A two phase search is not, since
+ * it seldom takes more than a few milliseconds, but an answer it finds
+ * after the deadline is still turned away with 504.
+ *
+ * Each solving thread keeps its own BIDIRECTIONAL solver, so their memory
+ * limit is the heap shared between the threads, and no more than
+ * BidirectionalSolver.DEFAULT_MEMORY_LIMIT each.
+ *
+ * Usage: java cubesolver.SolveServer [-port N] [-threads N] [-queue N]
+ * [-deadline MS].
+ *
+ * @author Andrew
+ *
+ */
+public class SolveServer {
+	public static final int DEFAULT_PORT = 8080;
+	/**
+	 * Most milliseconds a request may take, unless the server is told
+	 * otherwise.
+	 */
+	public static final long DEFAULT_DEADLINE = 5000;
+	/**
+	 * Requests that may wait for each solving thread before more are turned
+	 * away.
+	 */
+	public static final int DEFAULT_QUEUE_PER_THREAD = 8;
+	/**
+	 * Longest request body read.
+	 */
+	private static final int MAX_BODY = 4096;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor pool;
+	private final ScheduledExecutorService timer;
+	private final Semaphore admission;
+	private final long deadline;
+	/**
+	 * Most bytes each thread's BIDIRECTIONAL solver may use.
+	 */
+	private final long bidirectionalMemory;
+
+	private final ThreadLocal<Map<SolverMode, Solver>> solvers = new ThreadLocal<Map<SolverMode, Solver>>() {
+		@Override
+		protected Map<SolverMode, Solver> initialValue() {
+			return new EnumMap<SolverMode, Solver>(SolverMode.class);
+		}
+	};
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final AtomicLong solved = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Makes a server, which does not listen until start is called.
+	 *
+	 * @param address
+	 *            Where to listen. Port 0 picks a free port.
+	 * @param threads
+	 *            Number of cubes solved at once.
+	 * @param queue
+	 *            Number of requests that may wait for a thread.
+	 * @param deadline
+	 *            Most milliseconds a request may take.
+	 * @throws IOException
+	 *             If the address cannot be listened on.
+	 */
+	public SolveServer(InetSocketAddress address, int threads, int queue,
+			long deadline) throws IOException {
+		this.deadline = deadline;
+		bidirectionalMemory = Math.min(BidirectionalSolver.DEFAULT_MEMORY_LIMIT,
+				Runtime.getRuntime().maxMemory() / threads);
+		admission = new Semaphore(threads + queue);
+		// The queue never holds more than the admission semaphore allows.
+		pool = new ThreadPoolExecutor(threads, threads, 0,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		timer = Executors.newSingleThreadScheduledExecutor();
+		server = HttpServer.create(address, 0);
+		server.createContext("/solve", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				admit(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				send(exchange, 200, stats());
+			}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queue = -1;
+		long deadline = DEFAULT_DEADLINE;
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i += 2) {
+			if (args[i].equals("-port")) {
+				port = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-queue")) {
+				queue = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-deadline")) {
+				deadline = Long.parseLong(args[i + 1]);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (i != args.length) {
+			System.err.println("Usage: java cubesolver.SolveServer [-port N] "
+					+ "[-threads N] [-queue N] [-deadline MS]");
+			System.exit(2);
+		}
+		if (queue < 0) {
+			queue = threads * DEFAULT_QUEUE_PER_THREAD;
+		}
+		// Build the tables now rather than in the first request that needs
+		// them, since building cannot be cut short at a deadline. OPTIMAL
+		// and the BIDIRECTIONAL fallback use the pattern databases.
+		SolverMode.TWO_PHASE.createSolver().solve(new Cube());
+		PatternDatabase.getInstance();
+		SolveServer server = new SolveServer(new InetSocketAddress(port),
+				threads, queue, deadline);
+		server.start();
+		System.err.println("Listening on port " + server.getPort());
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops listening and abandons any requests still being solved.
+	 */
+	public void stop() {
+		server.stop(0);
+		pool.shutdownNow();
+		timer.shutdownNow();
+	}
+
+	/**
+	 * @return The port listened on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Runs on the dispatch thread, so only decides whether there is room for
+	 * the request and passes it on.
+	 */
+	private void admit(final HttpExchange exchange) throws IOException {
+		final long start = System.nanoTime();
+		if (!admission.tryAcquire()) {
+			rejected.incrementAndGet();
+			send(exchange, 429, error("Too many requests."));
+			return;
+		}
+		try {
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						solve(exchange, start);
+					} catch (IOException e) {
+						// The client has gone, so there is no one to tell.
+					} finally {
+						admission.release();
+						exchange.close();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			admission.release();
+			throw e;
+		}
+	}
+
+	private void solve(HttpExchange exchange, long start) throws IOException {
+		int status;
+		String answer;
+		try {
+			Map<String, String> params = params(exchange);
+			String item = params.get("cube");
+			if (item == null || item.trim().isEmpty()) {
+				throw new IllegalArgumentException("No cube given.");
+			}
+			SolverMode mode = params.containsKey("mode") ? SolverMode
+					.valueOf(params.get("mode")) : SolverMode.TWO_PHASE;
+			if (mode == SolverMode.PARALLEL_OPTIMAL) {
+				// It would take every processor from the other requests.
+				throw new IllegalArgumentException("Use OPTIMAL instead.");
+			}
+			long millis = params.containsKey("deadline") ? Math.min(
+					Long.parseLong(params.get("deadline")), deadline)
+					: deadline;
+			long remaining = start + millis * 1000000 - System.nanoTime();
+			Cube cube = BatchSolver.parse(item.trim());
+			if (remaining <= 0) {
+				throw new CancellationException("Deadline passed waiting.");
+			}
+			long solveStart = System.nanoTime();
+			int[] solution = solve(cube, mode, remaining);
+			long now = System.nanoTime();
+			StringBuilder json = new StringBuilder("{\"solution\":\"");
+			for (int i = 0; i < solution.length; i++) {
+				if (i > 0) {
+					json.append(' ');
+				}
+				json.append(MoveTable.slice(solution[i])).append('_')
+						.append(MoveTable.direction(solution[i]));
+			}
+			json.append("\",\"notation\":\"");
+			Notation.print(solution, solution.length, json);
+			json.append("\",\"length\":").append(solution.length)
+					.append(",\"mode\":\"").append(mode)
+					.append("\",\"solveMicros\":")
+					.append((now - solveStart) / 1000)
+					.append(",\"totalMicros\":").append((now - start) / 1000)
+					.append('}');
+			status = 200;
+			answer = json.toString();
+			solved.incrementAndGet();
+		} catch (CancellationException e) {
+			status = 504;
+			answer = error("Deadline passed.");
+			timedOut.incrementAndGet();
+		} catch (IllegalArgumentException e) {
+			// Also a bad mode or deadline, or a cube that cannot be solved.
+			status = 400;
+			answer = error(e.getMessage());
+			failed.incrementAndGet();
+		} catch (RuntimeException e) {
+			status = 500;
+			answer = error(e.toString());
+			failed.incrementAndGet();
+		}
+		try {
+			send(exchange, status, answer);
+		} finally {
+			latency.record((System.nanoTime() - start) / 1000);
+		}
+	}
+
+	/**
+	 * Solves on this thread, interrupting it if the search runs past the
+	 * deadline.
+	 *
+	 * @throws CancellationException
+	 *             If the deadline passed.
+	 */
+	private int[] solve(Cube cube, SolverMode mode, long nanos) {
+		Map<SolverMode, Solver> mine = solvers.get();
+		Solver solver = mine.get(mode);
+		if (solver == null) {
+			solver = mode == SolverMode.BIDIRECTIONAL ? new BidirectionalSolver(
+					bidirectionalMemory, SolverMode.OPTIMAL) : mode
+					.createSolver();
+			mine.put(mode, solver);
+		}
+		long end = System.nanoTime() + nanos;
+		Alarm alarm = new Alarm(Thread.currentThread());
+		ScheduledFuture<?> scheduled = timer.schedule(alarm, nanos,
+				TimeUnit.NANOSECONDS);
+		int[] solution;
+		try {
+			solution = solver.solve(cube);
+		} finally {
+			scheduled.cancel(false);
+			alarm.disarm();
+		}
+		// Not every solver looks for the interrupt.
+		if (System.nanoTime() - end > 0) {
+			throw new CancellationException("Deadline passed.");
+		}
+		return solution;
+	}
+
+	/**
+	 * Interrupts a thread, unless told first that it no longer needs to be.
+	 */
+	private static final class Alarm implements Runnable {
+		private final Thread thread;
+		private boolean disarmed;
+
+		Alarm(Thread thread) {
+			this.thread = thread;
+		}
+
+		@Override
+		public synchronized void run() {
+			if (!disarmed) {
+				thread.interrupt();
+			}
+		}
+
+		/**
+		 * Called by the thread itself. Clears an interrupt the alarm may have
+		 * made after the search had already finished, so the pool thread is
+		 * clean for the next request.
+		 */
+		synchronized void disarm() {
+			disarmed = true;
+			Thread.interrupted();
+		}
+	}
+
+	private String stats() {
+		return "{\"solved\":" + solved.get() + ",\"rejected\":"
+				+ rejected.get() + ",\"timedOut\":" + timedOut.get()
+				+ ",\"failed\":" + failed.get() + ",\"active\":"
+				+ pool.getActiveCount() + ",\"queued\":"
+				+ pool.getQueue().size() + ",\"latency\":{"
+				+ latency.toJson() + "}}";
+	}
+
+	/**
+	 * Reads the query string and, for a POST, the body as the cube.
+	 */
+	private static Map<String, String> params(HttpExchange exchange)
+			throws IOException {
+		Map<String, String> params = new HashMap<String, String>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String pair : query.split("&")) {
+				int split = pair.indexOf('=');
+				if (split > 0) {
+					params.put(decode(pair.substring(0, split)),
+							decode(pair.substring(split + 1)));
+				}
+			}
+		}
+		if (exchange.getRequestMethod().equals("POST")) {
+			params.put("cube", readBody(exchange.getRequestBody()));
+		}
+		return params;
+	}
+
+	private static String decode(String text)
+			throws UnsupportedEncodingException {
+		return URLDecoder.decode(text, "UTF-8");
+	}
+
+	private static String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) > 0) {
+			body.write(buffer, 0, read);
+			if (body.size() > MAX_BODY) {
+				throw new IllegalArgumentException("Body too long.");
+			}
+		}
+		return new String(body.toByteArray(), UTF8);
+	}
+
+	private static void send(HttpExchange exchange, int status, String json)
+			throws IOException {
+		byte[] bytes = json.getBytes(UTF8);
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String error(String message) {
+		StringBuilder json = new StringBuilder("{\"error\":\"");
+		String text = String.valueOf(message);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < ' ') {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append("\"}").toString();
+	}
+}
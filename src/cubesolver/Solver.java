@@ -0,0 +1,22 @@
+package cubesolver;
+
+/**
+ * Something that can work out how to solve a cube.
+ * 
+ * @author Andrew
+ * 
+ */
+public interface Solver {
+	/**
+	 * Finds moves that solve the cube. The cube itself is not changed.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the cube is in a state that cannot be solved.
+	 * 
+	 * @param cube
+	 *            The cube to solve.
+	 * @return Move ids, as numbered by MoveTable, to make in order with
+	 *         Cube.applyMove. An empty list if the cube is already solved.
+	 */
+	int[] solve(Cube cube);
+}
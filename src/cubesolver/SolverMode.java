@@ -0,0 +1,57 @@
+package cubesolver;
+
+/**
+ * Lists the ways a cube can be solved.
+ * 
+ * @author Andrew
+ * 
+ */
+public enum SolverMode {
+	/**
+	 * The fewest possible moves, which can take a long time.
+	 */
+	OPTIMAL {
+		@Override
+		public Solver createSolver() {
+			return new OptimalSolver();
+		}
+	},
+	/**
+	 * The fewest possible moves, searched for on every processor.
+	 */
+	PARALLEL_OPTIMAL {
+		@Override
+		public Solver createSolver() {
+			return new ParallelOptimalSolver();
+		}
+	},
+	/**
+	 * A solution of at most about 22 face turns, found in a few milliseconds
+	 * once the tables are built.
+	 */
+	TWO_PHASE {
+		@Override
+		public Solver createSolver() {
+			return new TwoPhaseSolver();
+		}
+	},
+	/**
+	 * The fewest possible moves, searched for from both ends without pattern
+	 * databases. Cubes more than about 12 moves from solved are handed to
+	 * OPTIMAL.
+	 */
+	BIDIRECTIONAL {
+		@Override
+		public Solver createSolver() {
+			return new BidirectionalSolver();
+		}
+	};
+
+	/**
+	 * Makes a solver for this mode. Solvers keep search state, so each
+	 * thread needs its own.
+	 * 
+	 * @return The solver.
+	 */
+	public abstract Solver createSolver();
+}
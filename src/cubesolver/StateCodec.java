@@ -0,0 +1,114 @@
+package cubesolver;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs a cube's state into 9 bytes, and back.
+ *
+ * The state is held as the way the whole cube is turned plus its pieces in
+ * the centre frame, each as a number: the corner permutation (8!), corner
+ * twist (3^7), edge permutation (12!) and edge flip (2^11). Together they
+ * need a little under 71 bits. They are written as two numbers, the corners
+ * in the first 27 bits and the edges and turn in the last 45, most
+ * significant byte first, so 9 bytes of zeroes is the solved cube.
+ *
+ * A codec keeps scratch space between calls, so each thread needs its own.
+ *
+ * @author Andrew
+ *
+ */
+public final class StateCodec {
+	/**
+	 * Bytes in an encoded state.
+	 */
+	public static final int BYTES = 9;
+	private static final int EDGE_BITS = 45;
+	private static final long CORNER_STATES = (long) CubieCube.CORNER_PERMS
+			* CubieCube.TWISTS;
+	private static final long EDGE_STATES = (long) CubieCube.EDGE_PERMS
+			* TwoPhaseTables.FLIPS * Rotations.ROTATION_COUNT;
+
+	private final CubieCube cubies = new CubieCube();
+	private final byte[] frame = new byte[MoveTable.STICKERS];
+
+	/**
+	 * @param cube
+	 * @return The 9 byte state of the cube.
+	 */
+	public byte[] encode(Cube cube) {
+		byte[] bytes = new byte[BYTES];
+		encode(cube, ByteBuffer.wrap(bytes), 0);
+		return bytes;
+	}
+
+	/**
+	 * Writes the state of a cube into a buffer, without moving its position.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the stickers are not of a real cube.
+	 *
+	 * @param cube
+	 * @param out
+	 * @param index
+	 *            Where in the buffer to write the 9 bytes.
+	 */
+	public void encode(Cube cube, ByteBuffer out, int index) {
+		byte[] stickers = cube.stickers();
+		int rotation = Rotations.homeRotation(stickers);
+		CubieCube pieces = CubieCube.fromStickers(Rotations.toCentreFrame(
+				stickers, rotation));
+		pieces.verify();
+		long corners = (long) pieces.getCornerPerm() * CubieCube.TWISTS
+				+ pieces.getTwist();
+		long edges = ((long) pieces.getEdgePerm() * TwoPhaseTables.FLIPS + pieces
+				.getFlip()) * Rotations.ROTATION_COUNT + rotation;
+		// 64 bits hold the corners and all but the lowest 8 bits of the
+		// edges. The last byte holds the rest.
+		out.putLong(index, corners << (EDGE_BITS - 8) | edges >>> 8);
+		out.put(index + 8, (byte) edges);
+	}
+
+	/**
+	 * @param bytes
+	 *            A 9 byte state.
+	 * @return A new cube in that state.
+	 */
+	public Cube decode(byte[] bytes) {
+		Cube cube = new Cube();
+		byte[] stickers = new byte[MoveTable.STICKERS];
+		decode(ByteBuffer.wrap(bytes), 0, stickers);
+		cube.setStickers(stickers);
+		return cube;
+	}
+
+	/**
+	 * Reads a state from a buffer, without moving its position.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the bytes are not the state of a real cube.
+	 *
+	 * @param in
+	 * @param index
+	 *            Where in the buffer the 9 bytes are.
+	 * @param stickers
+	 *            Set to the 54 sticker colors indexed face * 9 + square.
+	 */
+	public void decode(ByteBuffer in, int index, byte[] stickers) {
+		long high = in.getLong(index);
+		long corners = high >>> (EDGE_BITS - 8);
+		long edges = (high & ((1L << (EDGE_BITS - 8)) - 1)) << 8
+				| in.get(index + 8) & 0xFF;
+		if (corners >= CORNER_STATES || edges >= EDGE_STATES) {
+			throw new IllegalArgumentException("Not a cube state.");
+		}
+		int rotation = (int) (edges % Rotations.ROTATION_COUNT);
+		edges /= Rotations.ROTATION_COUNT;
+		cubies.setCornerPerm((int) (corners / CubieCube.TWISTS));
+		cubies.setTwist((int) (corners % CubieCube.TWISTS));
+		cubies.setEdgePerm((int) (edges / TwoPhaseTables.FLIPS));
+		cubies.setFlip((int) (edges % TwoPhaseTables.FLIPS));
+		cubies.verify();
+		cubies.toStickers(frame);
+		Rotations.fromCentreFrame(frame, rotation, stickers);
+	}
+}
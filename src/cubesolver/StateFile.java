@@ -0,0 +1,304 @@
+package cubesolver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A file of cube states, 9 bytes each as packed by StateCodec, one after
+ * another after a 32 byte header. The file is mapped rather than read, so
+ * opening it takes no time whatever its size, any state can be read
+ * straight from the mapped pages, and the operating system shares the
+ * pages between every program using the file. Many threads may read one
+ * StateFile at once.
+ *
+ * The header holds, in big endian order:
+ *
+ * <pre>
+ * 0  magic    "CUBS"
+ * 4  version  VERSION
+ * 8  record   bytes in each state, StateCodec.BYTES
+ * 12 reserved zero
+ * 16 count    number of states, 8 bytes
+ * 24 reserved zero
+ * </pre>
+ *
+ * Usage: java cubesolver.StateFile pack input output, to pack a file of
+ * cubes written as for BatchSolver, or java cubesolver.StateFile unpack
+ * input output, to write each state back out as 54 sticker letters. An
+ * input or output of - means the console, except for the packed file.
+ *
+ * @author Andrew
+ *
+ */
+public final class StateFile {
+	static final int MAGIC = 0x43554253;
+	/**
+	 * Change this whenever StateCodec's layout changes.
+	 */
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	/**
+	 * States in each mapping. A mapping can be at most 2GB, so a big file is
+	 * mapped in pieces.
+	 */
+	private static final int STATES_PER_MAP = (1 << 30) / StateCodec.BYTES;
+	/**
+	 * States written at once by a Writer.
+	 */
+	private static final int WRITE_BATCH = 1 << 14;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final ThreadLocal<StateCodec> CODECS = new ThreadLocal<StateCodec>() {
+		@Override
+		protected StateCodec initialValue() {
+			return new StateCodec();
+		}
+	};
+
+	private final MappedByteBuffer[] maps;
+	private final long size;
+
+	private StateFile(MappedByteBuffer[] maps, long size) {
+		this.maps = maps;
+		this.size = size;
+	}
+
+	/**
+	 * Maps a state file.
+	 *
+	 * @param file
+	 * @return The states.
+	 * @throws IOException
+	 *             If the file cannot be read or is not a state file.
+	 */
+	public static StateFile open(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0) {
+					throw new IOException(file + " is not a state file.");
+				}
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION
+					|| header.getInt() != StateCodec.BYTES) {
+				throw new IOException(file + " is not a state file.");
+			}
+			header.getInt();
+			long size = header.getLong();
+			if (size < 0
+					|| channel.size() != HEADER_SIZE + size * StateCodec.BYTES) {
+				throw new IOException(file + " is the wrong length.");
+			}
+			MappedByteBuffer[] maps = new MappedByteBuffer[(int) ((size
+					+ STATES_PER_MAP - 1) / STATES_PER_MAP)];
+			for (int i = 0; i < maps.length; i++) {
+				long first = (long) i * STATES_PER_MAP;
+				// The mapping stays valid after the file is closed.
+				maps[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						HEADER_SIZE + first * StateCodec.BYTES,
+						Math.min(STATES_PER_MAP, size - first)
+								* StateCodec.BYTES);
+			}
+			return new StateFile(maps, size);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return Number of states in the file.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 *            0 to size - 1.
+	 * @return A new cube in the state at that place.
+	 */
+	public Cube get(long index) {
+		byte[] stickers = new byte[MoveTable.STICKERS];
+		get(index, stickers);
+		Cube cube = new Cube();
+		cube.setStickers(stickers);
+		return cube;
+	}
+
+	/**
+	 * Reads a state without making a cube.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the bytes there are not a cube state.
+	 *
+	 * @param index
+	 *            0 to size - 1.
+	 * @param stickers
+	 *            Set to the 54 sticker colors indexed face * 9 + square.
+	 */
+	public void get(long index, byte[] stickers) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("State " + index + " of "
+					+ size);
+		}
+		CODECS.get().decode(maps[(int) (index / STATES_PER_MAP)],
+				(int) (index % STATES_PER_MAP) * StateCodec.BYTES, stickers);
+	}
+
+	/**
+	 * Starts a new state file, replacing any old one.
+	 *
+	 * @param file
+	 * @return The writer, which must be closed to finish the file.
+	 * @throws IOException
+	 */
+	public static Writer create(File file) throws IOException {
+		return new Writer(file);
+	}
+
+	/**
+	 * Adds states to the end of a new file. Not for use by more than one
+	 * thread.
+	 */
+	public static final class Writer implements Closeable {
+		private final RandomAccessFile out;
+		private final FileChannel channel;
+		private final ByteBuffer batch = ByteBuffer
+				.allocateDirect(WRITE_BATCH * StateCodec.BYTES);
+		private final StateCodec codec = new StateCodec();
+		private long size;
+
+		private Writer(File file) throws IOException {
+			out = new RandomAccessFile(file, "rw");
+			out.setLength(0);
+			channel = out.getChannel();
+			// The header is written last, once the count is known.
+			channel.position(HEADER_SIZE);
+		}
+
+		/**
+		 * @throws IllegalArgumentException
+		 *             If the cube's stickers are not of a real cube.
+		 *
+		 * @param cube
+		 * @throws IOException
+		 */
+		public void add(Cube cube) throws IOException {
+			codec.encode(cube, batch, batch.position());
+			batch.position(batch.position() + StateCodec.BYTES);
+			size++;
+			if (!batch.hasRemaining()) {
+				flush();
+			}
+		}
+
+		/**
+		 * @return Number of states added so far.
+		 */
+		public long size() {
+			return size;
+		}
+
+		private void flush() throws IOException {
+			batch.flip();
+			while (batch.hasRemaining()) {
+				channel.write(batch);
+			}
+			batch.clear();
+		}
+
+		/**
+		 * Writes the last states and the header.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.order(ByteOrder.BIG_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(StateCodec.BYTES)
+						.putInt(0).putLong(size);
+				header.clear();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3
+				|| !(args[0].equals("pack") || args[0].equals("unpack"))) {
+			System.err.println("Usage: java cubesolver.StateFile "
+					+ "pack|unpack input output");
+			System.exit(2);
+		}
+		long start = System.nanoTime();
+		long count = args[0].equals("pack") ? pack(args[1], args[2])
+				: unpack(args[1], args[2]);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d states in %.1fs, %.0f a second%n", count,
+				seconds, count / seconds);
+	}
+
+	private static long pack(String input, String output) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				input.equals("-") ? System.in : new FileInputStream(input),
+				UTF8));
+		Writer out = create(new File(output));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					out.add(BatchSolver.parse(line));
+				}
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+		return out.size();
+	}
+
+	private static long unpack(String input, String output)
+			throws IOException {
+		StateFile states = open(new File(input));
+		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+				output.equals("-") ? System.out : new FileOutputStream(output),
+				UTF8));
+		try {
+			byte[] stickers = new byte[MoveTable.STICKERS];
+			char[] line = new char[MoveTable.STICKERS + 1];
+			line[MoveTable.STICKERS] = '\n';
+			for (long i = 0; i < states.size(); i++) {
+				states.get(i, stickers);
+				for (int j = 0; j < MoveTable.STICKERS; j++) {
+					line[j] = FaceletParser.COLOR_LETTERS.charAt(stickers[j]);
+				}
+				out.write(line);
+			}
+		} finally {
+			out.close();
+		}
+		return states.size();
+	}
+}
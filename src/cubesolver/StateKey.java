@@ -0,0 +1,65 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * An unchanging copy of a cube's stickers, for use as a key in maps. A Cube
+ * itself changes as it moves, so it makes a poor key.
+ *
+ * @author Andrew
+ *
+ */
+final class StateKey {
+	private final byte[] stickers;
+	private final long hash;
+
+	/**
+	 * @param cube
+	 *            The cube whose state is copied.
+	 */
+	StateKey(Cube cube) {
+		this.stickers = cube.stickers().clone();
+		this.hash = cube.getHash();
+	}
+
+	/**
+	 * @param stickers
+	 *            Colour ordinals indexed face * 9 + square, kept without
+	 *            copying.
+	 */
+	StateKey(byte[] stickers) {
+		this.stickers = stickers;
+		this.hash = Cube.hashStickers(stickers);
+	}
+
+	/**
+	 * @return The stickers, which must not be changed.
+	 */
+	byte[] stickers() {
+		return stickers;
+	}
+
+	/**
+	 * @return The Zobrist hash of the state.
+	 */
+	long hash() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof StateKey)) {
+			return false;
+		}
+		StateKey key = (StateKey) other;
+		return hash == key.hash && Arrays.equals(stickers, key.stickers);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+}
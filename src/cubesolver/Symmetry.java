@@ -0,0 +1,267 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * The 48 symmetries of the cube, and a canonical form for cube states under
+ * them and under any change of colours.
+ *
+ * A symmetry is one of the 24 rotations of the whole cube, optionally
+ * followed by a mirror that swaps the left and right faces. Moving a state
+ * by a symmetry gives another state that needs exactly as many moves to
+ * solve, because each move can be carried across to a move of the moved
+ * state. Changing which colour is which makes no difference to solving
+ * either, since a cube is solved when every face is one colour. So every
+ * state related by a symmetry and a change of colours can share one entry
+ * in a cache.
+ *
+ * The canonical form of a state is the least, byte by byte, of its 48
+ * symmetric states, each with its colours renumbered in the order they are
+ * first seen. Solutions for the canonical state are carried back to the
+ * real one with fromCanonical.
+ *
+ * @author Andrew
+ *
+ */
+public final class Symmetry {
+	/**
+	 * Number of symmetries.
+	 */
+	public static final int SYMMETRY_COUNT = 48;
+
+	/**
+	 * The sticker permutation of each symmetry, used as for MoveTable:
+	 * moved[i] = stickers[perm[i]]. Entries 0 to 23 are the rotations of
+	 * Rotations, and entry r + 24 is rotation r followed by the mirror.
+	 */
+	private static final byte[][] PERMUTATIONS = new byte[SYMMETRY_COUNT][];
+	/**
+	 * MOVE_MAP[s][m] is the move that does to a state moved by symmetry s
+	 * what move m does to the state itself.
+	 */
+	private static final int[][] MOVE_MAP = new int[SYMMETRY_COUNT][MoveTable.MOVE_COUNT];
+	/**
+	 * The inverse of each MOVE_MAP entry.
+	 */
+	private static final int[][] UNMOVE_MAP = new int[SYMMETRY_COUNT][MoveTable.MOVE_COUNT];
+
+	static {
+		byte[] mirror = mirror();
+		for (int r = 0; r < Rotations.ROTATION_COUNT; r++) {
+			PERMUTATIONS[r] = Rotations.permutation(r);
+			PERMUTATIONS[r + Rotations.ROTATION_COUNT] = MoveTable.compose(
+					PERMUTATIONS[r], mirror);
+		}
+		for (int s = 0; s < SYMMETRY_COUNT; s++) {
+			byte[] perm = PERMUTATIONS[s];
+			byte[] undo = MoveTable.invert(perm);
+			for (int move = 0; move < MoveTable.MOVE_COUNT; move++) {
+				// Undo the symmetry, make the move, then do the symmetry.
+				byte[] moved = MoveTable.compose(
+						MoveTable.compose(undo, MoveTable.PERMUTATIONS[move]),
+						perm);
+				int image = -1;
+				for (int m = 0; m < MoveTable.MOVE_COUNT; m++) {
+					if (Arrays.equals(moved, MoveTable.PERMUTATIONS[m])) {
+						image = m;
+					}
+				}
+				if (image < 0) {
+					throw new IllegalStateException("Symmetry " + s
+							+ " does not map move " + move + " to a move.");
+				}
+				MOVE_MAP[s][move] = image;
+				UNMOVE_MAP[s][image] = move;
+			}
+		}
+	}
+
+	private Symmetry() {
+	}
+
+	/**
+	 * Returns a copy of the sticker permutation of a symmetry.
+	 *
+	 * @param symmetry
+	 *            0 to 47.
+	 * @return The permutation.
+	 */
+	public static byte[] permutation(int symmetry) {
+		return PERMUTATIONS[symmetry].clone();
+	}
+
+	/**
+	 * @param symmetry
+	 *            0 to 47.
+	 * @return True if the symmetry includes the mirror, so it turns each
+	 *         move the other way.
+	 */
+	public static boolean isMirror(int symmetry) {
+		return symmetry >= Rotations.ROTATION_COUNT;
+	}
+
+	/**
+	 * @param symmetry
+	 * @param move
+	 *            A move of a state.
+	 * @return The matching move of the state moved by the symmetry.
+	 */
+	public static int mapMove(int symmetry, int move) {
+		return MOVE_MAP[symmetry][move];
+	}
+
+	/**
+	 * Carries moves that solve a state over to the canonical state.
+	 *
+	 * @param symmetry
+	 *            The symmetry of the canonical form.
+	 * @param moves
+	 *            Moves of the real state.
+	 * @return The matching moves of the canonical state.
+	 */
+	public static int[] toCanonical(int symmetry, int[] moves) {
+		int[] mapped = new int[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			mapped[i] = MOVE_MAP[symmetry][moves[i]];
+		}
+		return mapped;
+	}
+
+	/**
+	 * Carries moves that solve the canonical state back to the real state.
+	 *
+	 * @param symmetry
+	 *            The symmetry of the canonical form.
+	 * @param moves
+	 *            Moves of the canonical state.
+	 * @return The matching moves of the real state.
+	 */
+	public static int[] fromCanonical(int symmetry, int[] moves) {
+		int[] mapped = new int[moves.length];
+		for (int i = 0; i < moves.length; i++) {
+			mapped[i] = UNMOVE_MAP[symmetry][moves[i]];
+		}
+		return mapped;
+	}
+
+	/**
+	 * @param first
+	 * @param second
+	 * @return True if the cubes have the same canonical form, and so need
+	 *         the same number of moves to solve.
+	 */
+	public static boolean areEquivalent(Cube first, Cube second) {
+		return canonical(first.stickers()).key.equals(canonical(second
+				.stickers()).key);
+	}
+
+	/**
+	 * Works out the canonical form of some stickers.
+	 *
+	 * @param stickers
+	 *            Colour ordinals indexed face * 9 + square.
+	 * @return The canonical state and the symmetry that gives it.
+	 */
+	static Canonical canonical(byte[] stickers) {
+		byte[] best = null;
+		int bestSymmetry = 0;
+		byte[] candidate = new byte[MoveTable.STICKERS];
+		byte[] labels = new byte[cubeColor.values().length];
+		for (int s = 0; s < SYMMETRY_COUNT; s++) {
+			if (relabel(PERMUTATIONS[s], stickers, labels, candidate, best)) {
+				best = candidate.clone();
+				bestSymmetry = s;
+			}
+		}
+		return new Canonical(new StateKey(best), bestSymmetry);
+	}
+
+	/**
+	 * Moves the stickers by a symmetry and renumbers the colours in the
+	 * order they are first seen, stopping early once the result is bigger
+	 * than best.
+	 *
+	 * @return True if the result is less than best, or best is null.
+	 */
+	private static boolean relabel(byte[] perm, byte[] stickers,
+			byte[] labels, byte[] result, byte[] best) {
+		Arrays.fill(labels, (byte) -1);
+		byte next = 0;
+		boolean less = best == null;
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			byte color = stickers[perm[i]];
+			if (labels[color] < 0) {
+				labels[color] = next++;
+			}
+			result[i] = labels[color];
+			if (!less) {
+				if (result[i] > best[i]) {
+					return false;
+				}
+				less = result[i] < best[i];
+			}
+		}
+		return less;
+	}
+
+	/**
+	 * Builds the mirror that swaps the left and right faces, by working out
+	 * where each sticker is in space. x goes right, y up and z towards the
+	 * front face. Each face is numbered as in Cube, looking straight at it
+	 * with the top face above or, for the top and bottom faces, with the
+	 * back and front face above.
+	 */
+	private static byte[] mirror() {
+		int[][] positions = new int[MoveTable.STICKERS][];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			positions[i] = position(i);
+		}
+		byte[] mirror = new byte[MoveTable.STICKERS];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			int[] p = positions[i];
+			int[] image = { -p[0], p[1], p[2], -p[3], p[4], p[5] };
+			for (int j = 0; j < MoveTable.STICKERS; j++) {
+				if (Arrays.equals(positions[j], image)) {
+					mirror[i] = (byte) j;
+				}
+			}
+		}
+		return mirror;
+	}
+
+	/**
+	 * @return The x, y and z of the sticker's cubie and the direction its
+	 *         face points.
+	 */
+	static int[] position(int sticker) {
+		int row = sticker % 9 / 3 - 1;
+		int column = sticker % 3 - 1;
+		switch (sticker / 9) {
+		case 0:
+			return new int[] { column, 1, row, 0, 1, 0 };
+		case 1:
+			return new int[] { column, -row, 1, 0, 0, 1 };
+		case 2:
+			return new int[] { -1, -row, column, -1, 0, 0 };
+		case 3:
+			return new int[] { -column, -row, -1, 0, 0, -1 };
+		case 4:
+			return new int[] { 1, -row, -column, 1, 0, 0 };
+		default:
+			return new int[] { column, -1, -row, 0, -1, 0 };
+		}
+	}
+
+	/**
+	 * A canonical state and the symmetry that turns the real state into it.
+	 */
+	static final class Canonical {
+		final StateKey key;
+		final int symmetry;
+
+		Canonical(StateKey key, int symmetry) {
+			this.key = key;
+			this.symmetry = symmetry;
+		}
+	}
+}
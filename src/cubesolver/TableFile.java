@@ -0,0 +1,187 @@
+package cubesolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.zip.CRC32;
+
+/**
+ * Saves pruning tables to disk and maps them back in, so the solvers can
+ * start without building them. A mapped table is read in place, and the
+ * operating system shares its pages between every program using the file.
+ *
+ * Each file is a 32 byte header followed by the table bytes. The header
+ * holds, in big endian order:
+ *
+ * <pre>
+ * 0  magic    "CUBE"
+ * 4  version  VERSION
+ * 8  key      hash of the table name and the move permutations
+ * 12 size     number of entries
+ * 16 crc      CRC32 of the table bytes
+ * 20 reserved zero
+ * </pre>
+ *
+ * A file with the wrong magic, version, key, size or checksum is stale and
+ * is ignored. The directory comes from the cubesolver.tables system
+ * property, or is "tables" in the working directory.
+ *
+ * @author Andrew
+ *
+ */
+final class TableFile {
+	static final int MAGIC = 0x43554245;
+	/**
+	 * Change this whenever the layout of a table changes.
+	 */
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final String SUFFIX = ".prun";
+
+	private TableFile() {
+	}
+
+	/**
+	 * @return The directory the table files are kept in.
+	 */
+	static File directory() {
+		return new File(System.getProperty("cubesolver.tables", "tables"));
+	}
+
+	/**
+	 * @param name
+	 *            Name of the table.
+	 * @return The file the table is kept in.
+	 */
+	static File file(String name) {
+		return new File(directory(), name + SUFFIX);
+	}
+
+	/**
+	 * Maps a table from its file.
+	 *
+	 * @throws CancellationException
+	 *             If the thread is interrupted. The file channel closes when
+	 *             that happens, and taking the file as missing would have the
+	 *             caller build the table instead, which takes far longer.
+	 *
+	 * @param name
+	 *            Name of the table.
+	 * @param size
+	 *            Number of entries expected.
+	 * @return The table, or null if the file is missing or stale.
+	 */
+	static PruningTable load(String name, int size) {
+		File file = file(name);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = in.getChannel();
+				long length = PruningTable.bytes(size);
+				if (channel.size() != HEADER_SIZE + length) {
+					return null;
+				}
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				while (header.hasRemaining()) {
+					if (channel.read(header, header.position()) < 0) {
+						return null;
+					}
+				}
+				header.flip();
+				if (header.getInt() != MAGIC || header.getInt() != VERSION
+						|| header.getInt() != key(name)
+						|| header.getInt() != size) {
+					return null;
+				}
+				int crc = header.getInt();
+				// The mapping stays valid after the file is closed.
+				MappedByteBuffer data = channel.map(
+						FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length);
+				if (crc(data) != crc) {
+					return null;
+				}
+				return new PruningTable(size, data);
+			} finally {
+				in.close();
+			}
+		} catch (ClosedByInterruptException e) {
+			throw new CancellationException("Loading " + name
+					+ " interrupted.");
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a table to its file, replacing any old one. The file is written
+	 * under another name first so a program mapping the old one is not
+	 * disturbed.
+	 *
+	 * @param name
+	 *            Name of the table.
+	 * @param table
+	 *            The table.
+	 * @throws IOException
+	 */
+	static void save(String name, PruningTable table) throws IOException {
+		File directory = directory();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot make " + directory);
+		}
+		ByteBuffer data = table.data();
+		File file = file(name);
+		File temp = new File(directory, name + SUFFIX + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(temp, "rw");
+		try {
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.order(ByteOrder.BIG_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(key(name))
+					.putInt(table.size()).putInt(crc(data));
+			header.clear();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+			channel.force(true);
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+			throw new IOException("Cannot replace " + file);
+		}
+	}
+
+	/**
+	 * Tables depend on the moves they were built with, so a change to the
+	 * moves makes the old files stale.
+	 */
+	static int key(String name) {
+		return name.hashCode() * 31 + Arrays.deepHashCode(MoveTable.PERMUTATIONS);
+	}
+
+	private static int crc(ByteBuffer data) {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[1 << 16];
+		ByteBuffer in = data.duplicate();
+		while (in.hasRemaining()) {
+			int length = Math.min(chunk.length, in.remaining());
+			in.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,32 @@
+package cubesolver;
+
+import java.io.IOException;
+
+/**
+ * Builds the pruning tables for both solvers and writes them to the table
+ * directory, so later runs can map them instead of building them.
+ *
+ * Usage: java cubesolver.TableGenerator [directory]
+ *
+ * @author Andrew
+ *
+ */
+public class TableGenerator {
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0) {
+			System.setProperty("cubesolver.tables", args[0]);
+		}
+		System.out.println("Writing tables to "
+				+ TableFile.directory().getAbsolutePath());
+
+		long start = System.currentTimeMillis();
+		new TwoPhaseTables(false).save();
+		System.out.println("Two phase tables: "
+				+ (System.currentTimeMillis() - start) + "ms");
+
+		start = System.currentTimeMillis();
+		new PatternDatabase(false).save();
+		System.out.println("Pattern databases: "
+				+ (System.currentTimeMillis() - start) + "ms");
+	}
+}
@@ -0,0 +1,281 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * Solves a cube quickly in a few more moves than the shortest solution, by
+ * Kociemba's two phase method. Phase 1 turns the cube into one where no
+ * corner is twisted, no edge is flipped and the middle layer edges of
+ * slice 8 are in that layer. Phase 2 solves that cube using only moves that
+ * keep it so. Both phases search with iterative deepening over coordinate
+ * tables.
+ *
+ * Lengths here count face turns, a half turn being one turn, and the search
+ * stops at the first solution no longer than the maximum length. Each half
+ * turn becomes two calls to changeCube.
+ *
+ * How long phase 1 is, and so how quickly phase 2 turns up a short enough
+ * solution, depends a lot on which axis is taken as up and down. So the
+ * search runs on six views of the cube at once, one move of phase 1 at a
+ * time: each axis on top, and the cube that undoes each of those, whose
+ * solution run backwards solves the cube.
+ *
+ * @author Andrew
+ *
+ */
+public class TwoPhaseSolver implements Solver {
+	/**
+	 * Default longest solution to accept, in face turns.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 22;
+	/**
+	 * Every cube can be taken to phase 2 in this many face turns.
+	 */
+	private static final int PHASE1_DEPTH = 12;
+	/**
+	 * Every phase 2 cube can be solved in this many phase 2 turns.
+	 */
+	private static final int PHASE2_DEPTH = 18;
+	/**
+	 * Each axis, seen as it is and undone.
+	 */
+	private static final int VIEWS = TwoPhaseTables.AXES * 2;
+
+	private final TwoPhaseTables tables;
+	private final int maxLength;
+	private final int[] moves = new int[PHASE1_DEPTH + PHASE2_DEPTH];
+	private final CubieCube phase2Start = new CubieCube();
+	private final CubieCube moved = new CubieCube();
+	private final CubieCube[] views = new CubieCube[VIEWS];
+	private CubieCube start;
+	private int length;
+	private int limit;
+
+	/**
+	 * Makes a solver using the shared tables, building them if need be.
+	 */
+	public TwoPhaseSolver() {
+		this(DEFAULT_MAX_LENGTH);
+	}
+
+	/**
+	 * Makes a solver that looks for solutions no longer than maxLength face
+	 * turns. If there are none, longer ones are accepted.
+	 *
+	 * @param maxLength
+	 */
+	public TwoPhaseSolver(int maxLength) {
+		this.tables = TwoPhaseTables.getInstance();
+		this.maxLength = maxLength;
+		for (int i = 0; i < VIEWS; i++) {
+			views[i] = new CubieCube();
+		}
+	}
+
+	@Override
+	public int[] solve(Cube cube) {
+		byte[] stickers = cube.stickers();
+		int rotation = Rotations.homeRotation(stickers);
+		byte[] frame = Rotations.toCentreFrame(stickers, rotation);
+		CubieCube.fromStickers(frame).verify();
+		int[] twists = new int[VIEWS];
+		int[] flips = new int[VIEWS];
+		int[] slices = new int[VIEWS];
+		int[] distances = new int[VIEWS];
+		for (int i = 0; i < VIEWS; i++) {
+			if (i % 2 == 0) {
+				views[i].set(CubieCube.fromStickers(TwoPhaseTables.axisView(
+						frame, i / 2)));
+			} else {
+				CubieCube.invert(views[i - 1], views[i]);
+			}
+			twists[i] = views[i].getTwist();
+			flips[i] = views[i].getFlip();
+			slices[i] = views[i].getSlice();
+			distances[i] = tables.flipSliceTwist.get(tables.phase1Index(
+					twists[i], flips[i], slices[i]));
+		}
+		for (limit = maxLength; limit <= PHASE1_DEPTH + PHASE2_DEPTH; limit++) {
+			for (int depth = 0; depth <= Math.min(limit, PHASE1_DEPTH); depth++) {
+				for (int i = 0; i < VIEWS; i++) {
+					start = views[i];
+					if (distances[i] <= depth
+							&& phase1(twists[i], flips[i], slices[i], 0, depth)) {
+						return MoveSimplifier.simplify(Rotations.toPhysical(
+								rotation, quarterTurns(i)));
+					}
+				}
+			}
+		}
+		throw new IllegalStateException("No solution found.");
+	}
+
+	/**
+	 * @return The length in face turns of the last solution found.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Looks for phase 1 solutions of exactly togo more moves, and tries
+	 * phase 2 from each.
+	 */
+	private boolean phase1(int twist, int flip, int slice, int depth, int togo) {
+		if (togo == 0) {
+			if (twist != 0 || flip != 0
+					|| slice != TwoPhaseTables.SOLVED_SLICE) {
+				return false;
+			}
+			// Ending on a phase 2 move would have been found one move sooner.
+			if (depth > 0 && TwoPhaseTables.isPhase2(moves[depth - 1])) {
+				return false;
+			}
+			return startPhase2(depth);
+		}
+		for (int m = 0; m < TwoPhaseTables.MOVES; m++) {
+			if (depth > 0 && skip(moves[depth - 1], m)) {
+				continue;
+			}
+			int nextTwist = tables.twistMove[twist * TwoPhaseTables.MOVES + m];
+			int nextFlip = tables.flipMove[flip * TwoPhaseTables.MOVES + m];
+			int nextSlice = tables.sliceMove[slice * TwoPhaseTables.MOVES + m];
+			// The small tables first, since the exact one is seldom in cache.
+			if (tables.twistSlice.get(nextTwist * TwoPhaseTables.SLICES
+					+ nextSlice) >= togo
+					|| tables.flipSlice.get(nextFlip * TwoPhaseTables.SLICES
+							+ nextSlice) >= togo
+					|| tables.twistFlip.get(nextTwist * TwoPhaseTables.FLIPS
+							+ nextFlip) >= togo
+					|| tables.flipSliceTwist.get(tables.phase1Index(nextTwist,
+							nextFlip, nextSlice)) >= togo) {
+				continue;
+			}
+			moves[depth] = m;
+			if (phase1(nextTwist, nextFlip, nextSlice, depth + 1, togo - 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replays phase 1 on the starting cube and searches phase 2 from there.
+	 */
+	private boolean startPhase2(int depth1) {
+		CubieCube[] faceMoves = FaceMoves.MOVES;
+		phase2Start.set(start);
+		for (int i = 0; i < depth1; i++) {
+			CubieCube.multiply(phase2Start, faceMoves[moves[i]], moved);
+			phase2Start.set(moved);
+		}
+		int corners = phase2Start.getCornerPerm();
+		int edges = phase2Start.getUDEdgePerm();
+		int slice = phase2Start.getSlicePerm();
+		int maxDepth2 = Math.min(limit - depth1, PHASE2_DEPTH);
+		int depth2 = estimate2(corners, edges, slice, maxDepth2 + 1);
+		for (; depth2 <= maxDepth2; depth2++) {
+			if (phase2(corners, edges, slice, depth1, depth2)) {
+				length = depth1 + depth2;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean phase2(int corners, int edges, int slice, int depth,
+			int togo) {
+		if (togo == 0) {
+			return corners == 0 && edges == 0 && slice == 0;
+		}
+		for (int i = 0; i < TwoPhaseTables.PHASE2_MOVES; i++) {
+			int m = TwoPhaseTables.PHASE2[i];
+			if (depth > 0 && skip(moves[depth - 1], m)) {
+				continue;
+			}
+			int nextCorners = tables.cornerPermMove[corners
+					* TwoPhaseTables.PHASE2_MOVES + i];
+			int nextEdges = tables.udEdgePermMove[edges
+					* TwoPhaseTables.PHASE2_MOVES + i];
+			int nextSlice = tables.slicePermMove[slice
+					* TwoPhaseTables.PHASE2_MOVES + i];
+			if (estimate2(nextCorners, nextEdges, nextSlice, togo) >= togo) {
+				continue;
+			}
+			moves[depth] = m;
+			if (phase2(nextCorners, nextEdges, nextSlice, depth + 1, togo - 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Estimates the moves left in phase 2. The small tables are looked at
+	 * first, and the big one, which is seldom in cache, only if they do not
+	 * already reach enough.
+	 *
+	 * @param enough
+	 *            An estimate this big is as good as a bigger one.
+	 */
+	private int estimate2(int corners, int edges, int slice, int enough) {
+		int estimate = Math.max(tables.cornerSlicePerm.get(corners
+				* TwoPhaseTables.SLICE_PERMS + slice), tables.edgeSlicePerm
+				.get(edges * TwoPhaseTables.SLICE_PERMS + slice));
+		if (estimate >= enough) {
+			return estimate;
+		}
+		return Math.max(estimate, tables.cornerEdgePerm.get(tables
+				.cornerEdgeIndex(corners, edges)));
+	}
+
+	/**
+	 * Turning the same face twice in a row, or the two faces of an axis in
+	 * the wrong order, gives nothing a single move could not.
+	 */
+	private static boolean skip(int last, int move) {
+		int lastFace = last / 3;
+		int face = move / 3;
+		return face == lastFace || (face / 2 == lastFace / 2 && face < lastFace);
+	}
+
+	/**
+	 * Turns the face turns found on a view back into ones on the cube, and
+	 * expands them into centre frame quarter turns.
+	 */
+	private int[] quarterTurns(int view) {
+		int[] quarters = new int[length * 2];
+		int count = 0;
+		for (int i = 0; i < length; i++) {
+			int move = moves[i];
+			if (view % 2 == 1) {
+				// The undone cube's solution, backwards with each turn undone.
+				move = moves[length - 1 - i];
+				move = move / 3 * 3 + 2 - move % 3;
+			}
+			move = TwoPhaseTables.AXIS_MOVES[view / 2][move];
+			int quarter = MoveTable
+					.moveId(0, TwoPhaseTables.FACE_SLICES[move / 3]);
+			switch (move % 3) {
+			case 0:
+				quarters[count++] = quarter;
+				break;
+			case 1:
+				quarters[count++] = quarter;
+				quarters[count++] = quarter;
+				break;
+			default:
+				quarters[count++] = MoveTable.inverse(quarter);
+				break;
+			}
+		}
+		return Arrays.copyOf(quarters, count);
+	}
+
+	/**
+	 * The face moves, built once.
+	 */
+	private static final class FaceMoves {
+		static final CubieCube[] MOVES = TwoPhaseTables.faceMoves();
+	}
+}
@@ -0,0 +1,693 @@
+package cubesolver;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Move and pruning tables for the two phase solver.
+ *
+ * Its 18 moves are the six outer faces turned once, twice or three times,
+ * numbered face * 3 + turns - 1, with the faces in the order of FACE_SLICES.
+ * In phase 1 every move is allowed. Phase 2 keeps to the moves that leave
+ * the corners untwisted, the edges unflipped and the middle layer edges in
+ * the middle layer: any turn of slices 7 and 9, and half turns of the rest.
+ *
+ * The pruning tables are mapped from files made by TableGenerator when they
+ * are there, and built otherwise.
+ *
+ * Each phase also has one much bigger table, reduced by symmetry, that
+ * the small ones are checked before. Phase 1 has the exact distance of
+ * every flip, slice and twist. The flip and slice pairs fall into classes
+ * of ones that are turned copies of each other by the 8 rotations that
+ * keep the top and bottom faces on the top and bottom, and a cube is
+ * looked up by its class and its twist seen through the rotation that
+ * takes it to the first of its class. Phase 2 has the corner permutation
+ * and the top and bottom edge permutation together, reduced the same way
+ * by the corner permutation and 16 symmetries, the rotations and their
+ * mirror images. The two take 139MB and 56MB where they would take over
+ * 1GB and 813MB whole.
+ *
+ * @author Andrew
+ *
+ */
+public final class TwoPhaseTables {
+	/**
+	 * Number of face moves.
+	 */
+	static final int MOVES = 18;
+	/**
+	 * Number of phase 2 moves.
+	 */
+	static final int PHASE2_MOVES = 10;
+	/**
+	 * The slice of each face, paired by axis: top and bottom, right and
+	 * left, then front and back.
+	 */
+	static final int[] FACE_SLICES = { 7, 9, 3, 1, 6, 4 };
+	/**
+	 * The face move of each phase 2 move.
+	 */
+	static final int[] PHASE2 = { 0, 1, 2, 3, 4, 5, 7, 10, 13, 16 };
+
+	static final int FLIPS = 2048;
+	static final int SLICES = 495;
+	static final int SLICE_PERMS = 24;
+	/**
+	 * Slice coordinate of a solved cube.
+	 */
+	static final int SOLVED_SLICE = new CubieCube().getSlice();
+	/**
+	 * Number of symmetries that keep the top and bottom faces on the top and
+	 * bottom.
+	 */
+	static final int UD_SYMMETRIES = 16;
+	/**
+	 * Number of rotations that keep the top and bottom faces on the top and
+	 * bottom.
+	 */
+	static final int UD_ROTATIONS = 8;
+
+	/**
+	 * Number of axes. The solver also looks at the cube with the right and
+	 * left faces on top, and with the front and back faces on top, since one
+	 * of the three views often has a much shorter phase 1.
+	 */
+	static final int AXES = 3;
+	/**
+	 * The whole cube turn that puts each axis on top, the first being none.
+	 */
+	private static final byte[][] AXIS_ROTATIONS = new byte[AXES][];
+	/**
+	 * AXIS_MOVES[a][m] is the face move that has the effect of face move m
+	 * made on the cube seen with axis a on top.
+	 */
+	static final int[][] AXIS_MOVES = new int[AXES][MOVES];
+
+	static {
+		byte[] solved = new byte[MoveTable.STICKERS];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			solved[i] = (byte) (i / 9);
+		}
+		byte[] turned = new byte[MoveTable.STICKERS];
+		for (int r = 0; r < Rotations.ROTATION_COUNT; r++) {
+			MoveTable.apply(Rotations.rotationPermutation(r), solved, turned);
+			// Faces 0 and 5, 1 and 3, and 2 and 4 are opposite.
+			int top = turned[4];
+			int axis = top == 0 || top == 5 ? 0 : top == 1 || top == 3 ? 1 : 2;
+			if (AXIS_ROTATIONS[axis] == null) {
+				AXIS_ROTATIONS[axis] = Rotations.rotationPermutation(r);
+			}
+		}
+		byte[][] faceTurns = new byte[MOVES][];
+		for (int face = 0; face < FACE_SLICES.length; face++) {
+			byte[] quarter = MoveTable.PERMUTATIONS[MoveTable.moveId(0,
+					FACE_SLICES[face])];
+			faceTurns[face * 3] = quarter;
+			for (int turns = 1; turns < 3; turns++) {
+				faceTurns[face * 3 + turns] = MoveTable.compose(
+						faceTurns[face * 3 + turns - 1], quarter);
+			}
+		}
+		for (int axis = 0; axis < AXES; axis++) {
+			byte[] rotation = AXIS_ROTATIONS[axis];
+			for (int m = 0; m < MOVES; m++) {
+				// The view reads sticker i from rotation[i], so turning the
+				// real cube then looking must match looking then turning.
+				byte[] wanted = MoveTable.compose(rotation, faceTurns[m]);
+				AXIS_MOVES[axis][m] = -1;
+				for (int real = 0; real < MOVES; real++) {
+					if (Arrays.equals(wanted, MoveTable.compose(
+							faceTurns[real], rotation))) {
+						AXIS_MOVES[axis][m] = real;
+					}
+				}
+				if (AXIS_MOVES[axis][m] < 0) {
+					throw new IllegalStateException("No face move for move "
+							+ m + " on axis " + axis);
+				}
+			}
+		}
+	}
+
+	private static TwoPhaseTables instance;
+
+	final short[] twistMove = new short[CubieCube.TWISTS * MOVES];
+	final short[] flipMove = new short[FLIPS * MOVES];
+	final short[] sliceMove = new short[SLICES * MOVES];
+	/**
+	 * The phase 2 tables are indexed by phase 2 move, 0 to 9, and kept small
+	 * so they stay in cache.
+	 */
+	final char[] cornerPermMove = new char[CubieCube.CORNER_PERMS
+			* PHASE2_MOVES];
+	final char[] udEdgePermMove = new char[CubieCube.CORNER_PERMS
+			* PHASE2_MOVES];
+	final byte[] slicePermMove = new byte[SLICE_PERMS * PHASE2_MOVES];
+	/**
+	 * The class of each flip and slice pair, indexed flip * SLICES + slice,
+	 * and the rotation that takes it to the first of its class.
+	 */
+	final int[] flipSliceClass = new int[FLIPS * SLICES];
+	final byte[] flipSliceRotation = new byte[FLIPS * SLICES];
+	/**
+	 * The twist seen through each rotation, indexed twist * UD_ROTATIONS +
+	 * rotation.
+	 */
+	final short[] twistConjugate = new short[CubieCube.TWISTS * UD_ROTATIONS];
+	/**
+	 * The first flip and slice pair of each class, and which rotations leave
+	 * it as it is, one bit each.
+	 */
+	private final int[] classFlipSlices;
+	private final int[] classRotations;
+	/**
+	 * The class of each corner permutation, and the symmetry that takes it
+	 * to the first of its class.
+	 */
+	final char[] cornerClass = new char[CubieCube.CORNER_PERMS];
+	final byte[] cornerSymmetry = new byte[CubieCube.CORNER_PERMS];
+	/**
+	 * The top and bottom edge permutation seen through each symmetry,
+	 * indexed permutation * UD_SYMMETRIES + symmetry.
+	 */
+	final char[] udEdgeConjugate = new char[CubieCube.CORNER_PERMS
+			* UD_SYMMETRIES];
+	/**
+	 * The first corner permutation of each class, and which symmetries leave
+	 * it as it is, one bit each.
+	 */
+	private final char[] classCorners;
+	private final char[] classSymmetries;
+
+	final PruningTable twistSlice;
+	final PruningTable flipSlice;
+	final PruningTable twistFlip;
+	final PruningTable flipSliceTwist;
+	final PruningTable cornerSlicePerm;
+	final PruningTable edgeSlicePerm;
+	final PruningTable cornerEdgePerm;
+
+	/**
+	 * @param load
+	 *            False to build the pruning tables even if there are files.
+	 */
+	TwoPhaseTables(boolean load) {
+		CubieCube[] moves = faceMoves();
+		CubieCube cube = new CubieCube();
+		CubieCube moved = new CubieCube();
+		for (int i = 0; i < CubieCube.TWISTS; i++) {
+			cube.setTwist(i);
+			for (int m = 0; m < MOVES; m++) {
+				CubieCube.multiply(cube, moves[m], moved);
+				twistMove[i * MOVES + m] = (short) moved.getTwist();
+			}
+		}
+		cube = new CubieCube();
+		for (int i = 0; i < FLIPS; i++) {
+			cube.setFlip(i);
+			for (int m = 0; m < MOVES; m++) {
+				CubieCube.multiply(cube, moves[m], moved);
+				flipMove[i * MOVES + m] = (short) moved.getFlip();
+			}
+		}
+		cube = new CubieCube();
+		for (int i = 0; i < SLICES; i++) {
+			cube.setSlice(i);
+			for (int m = 0; m < MOVES; m++) {
+				CubieCube.multiply(cube, moves[m], moved);
+				sliceMove[i * MOVES + m] = (short) moved.getSlice();
+			}
+		}
+		cube = new CubieCube();
+		for (int i = 0; i < CubieCube.CORNER_PERMS; i++) {
+			cube.setCornerPerm(i);
+			for (int m = 0; m < PHASE2_MOVES; m++) {
+				CubieCube.multiply(cube, moves[PHASE2[m]], moved);
+				cornerPermMove[i * PHASE2_MOVES + m] = (char) moved
+						.getCornerPerm();
+			}
+		}
+		cube = new CubieCube();
+		for (int i = 0; i < CubieCube.CORNER_PERMS; i++) {
+			cube.setUDEdgePerm(i);
+			for (int m = 0; m < PHASE2_MOVES; m++) {
+				CubieCube.multiply(cube, moves[PHASE2[m]], moved);
+				udEdgePermMove[i * PHASE2_MOVES + m] = (char) moved
+						.getUDEdgePerm();
+			}
+		}
+		cube = new CubieCube();
+		for (int i = 0; i < SLICE_PERMS; i++) {
+			cube.setSlicePerm(i);
+			for (int m = 0; m < PHASE2_MOVES; m++) {
+				CubieCube.multiply(cube, moves[PHASE2[m]], moved);
+				slicePermMove[i * PHASE2_MOVES + m] = (byte) moved
+						.getSlicePerm();
+			}
+		}
+
+		PruningTable.Coordinate twistSliceMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int twist = twistMove[index / SLICES * MOVES + move];
+				return twist * SLICES + sliceMove[index % SLICES * MOVES + move];
+			}
+		};
+		twistSlice = PruningTable.open("twistSlice", CubieCube.TWISTS * SLICES,
+				SOLVED_SLICE, MOVES, twistSliceMove, load);
+		PruningTable.Coordinate flipSliceMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int flip = flipMove[index / SLICES * MOVES + move];
+				return flip * SLICES + sliceMove[index % SLICES * MOVES + move];
+			}
+		};
+		flipSlice = PruningTable.open("flipSlice", FLIPS * SLICES,
+				SOLVED_SLICE, MOVES, flipSliceMove, load);
+		PruningTable.Coordinate twistFlipMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int twist = twistMove[index / FLIPS * MOVES + move];
+				return twist * FLIPS + flipMove[index % FLIPS * MOVES + move];
+			}
+		};
+		twistFlip = PruningTable.open("twistFlip", CubieCube.TWISTS * FLIPS,
+				0, MOVES, twistFlipMove, load);
+		PruningTable.Coordinate cornerSliceMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int perm = cornerPermMove[index / SLICE_PERMS * PHASE2_MOVES
+						+ move];
+				return perm * SLICE_PERMS
+						+ slicePermMove[index % SLICE_PERMS * PHASE2_MOVES
+								+ move];
+			}
+		};
+		cornerSlicePerm = PruningTable.open("cornerSlicePerm",
+				CubieCube.CORNER_PERMS * SLICE_PERMS, 0, PHASE2_MOVES,
+				cornerSliceMove, load);
+		PruningTable.Coordinate edgeSliceMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int perm = udEdgePermMove[index / SLICE_PERMS * PHASE2_MOVES
+						+ move];
+				return perm * SLICE_PERMS
+						+ slicePermMove[index % SLICE_PERMS * PHASE2_MOVES
+								+ move];
+			}
+		};
+		edgeSlicePerm = PruningTable.open("edgeSlicePerm",
+				CubieCube.CORNER_PERMS * SLICE_PERMS, 0, PHASE2_MOVES,
+				edgeSliceMove, load);
+
+		CubieCube[] rotations = udRotations(moves);
+		CubieCube[] unrotate = new CubieCube[UD_ROTATIONS];
+		for (int r = 0; r < UD_ROTATIONS; r++) {
+			unrotate[r] = new CubieCube();
+			CubieCube.invert(rotations[r], unrotate[r]);
+		}
+		int[] flipSlices = new int[FLIPS * SLICES];
+		int[] stabilizers = new int[FLIPS * SLICES];
+		Arrays.fill(flipSliceClass, -1);
+		int classes = 0;
+		cube = new CubieCube();
+		for (int i = 0; i < FLIPS * SLICES; i++) {
+			if (flipSliceClass[i] >= 0) {
+				continue;
+			}
+			cube.setSlice(i % SLICES);
+			cube.setFlip(i / SLICES);
+			for (int r = 0; r < UD_ROTATIONS; r++) {
+				conjugate(cube, unrotate[r], rotations[r], moved);
+				int other = moved.getFlip() * SLICES + moved.getSlice();
+				if (other == i) {
+					stabilizers[classes] |= 1 << r;
+				}
+				if (flipSliceClass[other] < 0) {
+					flipSliceClass[other] = classes;
+					flipSliceRotation[other] = (byte) inverse(rotations, r);
+				}
+			}
+			flipSlices[classes++] = i;
+		}
+		classFlipSlices = Arrays.copyOf(flipSlices, classes);
+		classRotations = Arrays.copyOf(stabilizers, classes);
+		cube = new CubieCube();
+		for (int i = 0; i < CubieCube.TWISTS; i++) {
+			cube.setTwist(i);
+			for (int r = 0; r < UD_ROTATIONS; r++) {
+				conjugate(cube, unrotate[r], rotations[r], moved);
+				twistConjugate[i * UD_ROTATIONS + r] = (short) moved.getTwist();
+			}
+		}
+		PruningTable.Coordinate flipSliceTwistMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int flipSlice = classFlipSlices[index / CubieCube.TWISTS];
+				int twist = index % CubieCube.TWISTS;
+				return phase1Index(twistMove[twist * MOVES + move],
+						flipMove[flipSlice / SLICES * MOVES + move],
+						sliceMove[flipSlice % SLICES * MOVES + move]);
+			}
+
+			@Override
+			int[] alike(int index) {
+				int symmetric = classRotations[index / CubieCube.TWISTS];
+				if (symmetric == 1) {
+					return null;
+				}
+				int base = index - index % CubieCube.TWISTS;
+				int twist = index % CubieCube.TWISTS;
+				int[] alike = new int[Integer.bitCount(symmetric) - 1];
+				int count = 0;
+				for (int r = 1; r < UD_ROTATIONS; r++) {
+					if ((symmetric & 1 << r) != 0) {
+						alike[count++] = base
+								+ twistConjugate[twist * UD_ROTATIONS + r];
+					}
+				}
+				return alike;
+			}
+		};
+		flipSliceTwist = PruningTable.open("flipSliceTwist", classes
+				* CubieCube.TWISTS, phase1Index(0, 0, SOLVED_SLICE), MOVES,
+				flipSliceTwistMove, load);
+
+		CubieCube[] symmetries = udSymmetries(moves);
+		CubieCube[] undo = new CubieCube[UD_SYMMETRIES];
+		for (int s = 0; s < UD_SYMMETRIES; s++) {
+			undo[s] = new CubieCube();
+			CubieCube.invert(symmetries[s], undo[s]);
+		}
+		char[] corners = new char[CubieCube.CORNER_PERMS];
+		stabilizers = new int[CubieCube.CORNER_PERMS];
+		Arrays.fill(cornerClass, Character.MAX_VALUE);
+		classes = 0;
+		cube = new CubieCube();
+		for (int i = 0; i < CubieCube.CORNER_PERMS; i++) {
+			if (cornerClass[i] != Character.MAX_VALUE) {
+				continue;
+			}
+			cube.setCornerPerm(i);
+			for (int s = 0; s < UD_SYMMETRIES; s++) {
+				conjugate(cube, undo[s], symmetries[s], moved);
+				int other = moved.getCornerPerm();
+				if (other == i) {
+					stabilizers[classes] |= 1 << s;
+				}
+				if (cornerClass[other] == Character.MAX_VALUE) {
+					cornerClass[other] = (char) classes;
+					cornerSymmetry[other] = (byte) inverse(symmetries, s);
+				}
+			}
+			corners[classes++] = (char) i;
+		}
+		classCorners = Arrays.copyOf(corners, classes);
+		classSymmetries = new char[classes];
+		for (int i = 0; i < classes; i++) {
+			classSymmetries[i] = (char) stabilizers[i];
+		}
+		cube = new CubieCube();
+		for (int i = 0; i < CubieCube.CORNER_PERMS; i++) {
+			cube.setUDEdgePerm(i);
+			for (int s = 0; s < UD_SYMMETRIES; s++) {
+				conjugate(cube, undo[s], symmetries[s], moved);
+				udEdgeConjugate[i * UD_SYMMETRIES + s] = (char) moved
+						.getUDEdgePerm();
+			}
+		}
+		PruningTable.Coordinate cornerEdgeMove = new PruningTable.Coordinate() {
+			@Override
+			int move(int index, int move) {
+				int corners = classCorners[index / CubieCube.CORNER_PERMS];
+				int edges = index % CubieCube.CORNER_PERMS;
+				return cornerEdgeIndex(cornerPermMove[corners * PHASE2_MOVES
+						+ move], udEdgePermMove[edges * PHASE2_MOVES + move]);
+			}
+
+			@Override
+			int[] alike(int index) {
+				int symmetric = classSymmetries[index / CubieCube.CORNER_PERMS];
+				if (symmetric == 1) {
+					return null;
+				}
+				int base = index - index % CubieCube.CORNER_PERMS;
+				int edges = index % CubieCube.CORNER_PERMS;
+				int[] alike = new int[Integer.bitCount(symmetric) - 1];
+				int count = 0;
+				for (int s = 1; s < UD_SYMMETRIES; s++) {
+					if ((symmetric & 1 << s) != 0) {
+						alike[count++] = base
+								+ udEdgeConjugate[edges * UD_SYMMETRIES + s];
+					}
+				}
+				return alike;
+			}
+		};
+		cornerEdgePerm = PruningTable.open("cornerEdgePerm", classes
+				* CubieCube.CORNER_PERMS, 0, PHASE2_MOVES, cornerEdgeMove,
+				load);
+	}
+
+	/**
+	 * @return The index of the cube in flipSliceTwist.
+	 */
+	int phase1Index(int twist, int flip, int slice) {
+		int flipSlice = flip * SLICES + slice;
+		return flipSliceClass[flipSlice] * CubieCube.TWISTS
+				+ twistConjugate[twist * UD_ROTATIONS
+						+ flipSliceRotation[flipSlice]];
+	}
+
+	/**
+	 * @param corners
+	 *            A corner permutation coordinate.
+	 * @param edges
+	 *            A top and bottom edge permutation coordinate.
+	 * @return The index of the cube in cornerEdgePerm.
+	 */
+	int cornerEdgeIndex(int corners, int edges) {
+		return cornerClass[corners] * CubieCube.CORNER_PERMS
+				+ udEdgeConjugate[edges * UD_SYMMETRIES
+						+ cornerSymmetry[corners]];
+	}
+
+	/**
+	 * Returns the shared tables, building them the first time.
+	 *
+	 * @throws java.util.concurrent.CancellationException
+	 *             If the thread is interrupted while the table files are read.
+	 *             Nothing is kept, so the next call starts again.
+	 *
+	 * @return The tables.
+	 */
+	public static synchronized TwoPhaseTables getInstance() {
+		if (instance == null) {
+			instance = new TwoPhaseTables(true);
+		}
+		return instance;
+	}
+
+	/**
+	 * Writes the pruning tables to their files.
+	 *
+	 * @throws IOException
+	 */
+	void save() throws IOException {
+		TableFile.save("twistSlice", twistSlice);
+		TableFile.save("flipSlice", flipSlice);
+		TableFile.save("twistFlip", twistFlip);
+		TableFile.save("flipSliceTwist", flipSliceTwist);
+		TableFile.save("cornerSlicePerm", cornerSlicePerm);
+		TableFile.save("edgeSlicePerm", edgeSlicePerm);
+		TableFile.save("cornerEdgePerm", cornerEdgePerm);
+	}
+
+	/**
+	 * Turns the whole cube so an axis is on top, and recolors it so each
+	 * centre has the color of its face again.
+	 *
+	 * @param frame
+	 *            Sticker colors in the centre frame.
+	 * @param axis
+	 *            0 to AXES - 1.
+	 * @return The stickers of the cube seen that way.
+	 */
+	static byte[] axisView(byte[] frame, int axis) {
+		byte[] view = new byte[MoveTable.STICKERS];
+		MoveTable.apply(AXIS_ROTATIONS[axis], frame, view);
+		byte[] colors = new byte[6];
+		for (int face = 0; face < colors.length; face++) {
+			colors[view[face * 9 + 4]] = (byte) face;
+		}
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			view[i] = colors[view[i]];
+		}
+		return view;
+	}
+
+	/**
+	 * @param move
+	 *            A face move.
+	 * @return True if the move is allowed in phase 2.
+	 */
+	static boolean isPhase2(int move) {
+		return move < 6 || move % 3 == 1;
+	}
+
+	/**
+	 * Finds the rotations that keep the top and bottom faces on the top and
+	 * bottom, as cubies, and checks each takes face moves to face moves.
+	 *
+	 * @param moves
+	 *            The face moves.
+	 * @return The rotations, the first being none.
+	 */
+	private static CubieCube[] udRotations(CubieCube[] moves) {
+		CubieCube[] rotations = new CubieCube[UD_ROTATIONS];
+		int count = 0;
+		byte[] solved = new byte[MoveTable.STICKERS];
+		for (int i = 0; i < MoveTable.STICKERS; i++) {
+			solved[i] = (byte) (i / 9);
+		}
+		byte[] turned = new byte[MoveTable.STICKERS];
+		for (int r = 0; r < Rotations.ROTATION_COUNT; r++) {
+			MoveTable.apply(Rotations.rotationPermutation(r), solved, turned);
+			if (turned[4] == 0 || turned[4] == 5) {
+				// The pieces are told apart by color, so the turned cube
+				// reads as the pieces the rotation moves.
+				rotations[count++] = CubieCube.fromStickers(turned);
+			}
+		}
+		CubieCube undo = new CubieCube();
+		CubieCube moved = new CubieCube();
+		for (CubieCube rotation : rotations) {
+			CubieCube.invert(rotation, undo);
+			for (CubieCube move : moves) {
+				conjugate(move, undo, rotation, moved);
+				boolean found = false;
+				for (CubieCube other : moves) {
+					found |= Arrays.equals(moved.cp, other.cp)
+							&& Arrays.equals(moved.co, other.co)
+							&& Arrays.equals(moved.ep, other.ep)
+							&& Arrays.equals(moved.eo, other.eo);
+				}
+				if (!found) {
+					throw new IllegalStateException(
+							"A rotation does not take a face move to a face move.");
+				}
+			}
+		}
+		return rotations;
+	}
+
+	/**
+	 * Finds the symmetries that keep the top and bottom faces on the top and
+	 * bottom, as cubies with only their pieces placed, and checks each takes
+	 * phase 2 moves to phase 2 moves. A mirror has no sensible twists, but
+	 * phase 2 only needs where the pieces go.
+	 *
+	 * @param moves
+	 *            The face moves.
+	 * @return The symmetries, the first being the identity.
+	 */
+	private static CubieCube[] udSymmetries(CubieCube[] moves) {
+		CubieCube[] symmetries = new CubieCube[UD_SYMMETRIES];
+		int count = 0;
+		for (int s = 0; s < Symmetry.SYMMETRY_COUNT; s++) {
+			byte[] perm = Symmetry.permutation(s);
+			// The top centre comes from the top or bottom face.
+			if (perm[4] / 9 != 0 && perm[4] / 9 != 5) {
+				continue;
+			}
+			CubieCube symmetry = new CubieCube();
+			for (int i = 0; i < CubieCube.CORNERS; i++) {
+				symmetry.cp[i] = (byte) piece(CubieCube.CORNER_FACELETS,
+						perm[CubieCube.CORNER_FACELETS[i][0]]);
+			}
+			for (int i = 0; i < CubieCube.EDGES; i++) {
+				symmetry.ep[i] = (byte) piece(CubieCube.EDGE_FACELETS,
+						perm[CubieCube.EDGE_FACELETS[i][0]]);
+			}
+			symmetries[count++] = symmetry;
+		}
+		CubieCube undo = new CubieCube();
+		CubieCube moved = new CubieCube();
+		for (CubieCube symmetry : symmetries) {
+			CubieCube.invert(symmetry, undo);
+			for (int m : PHASE2) {
+				conjugate(moves[m], undo, symmetry, moved);
+				boolean found = false;
+				for (int other : PHASE2) {
+					found |= Arrays.equals(moved.cp, moves[other].cp)
+							&& Arrays.equals(moved.ep, moves[other].ep);
+				}
+				if (!found) {
+					throw new IllegalStateException("A symmetry does not take "
+							+ "phase 2 move " + m + " to a phase 2 move.");
+				}
+			}
+		}
+		return symmetries;
+	}
+
+	/**
+	 * @return The piece of a table of facelets that has the given sticker.
+	 */
+	private static int piece(int[][] facelets, int sticker) {
+		for (int i = 0; i < facelets.length; i++) {
+			for (int facelet : facelets[i]) {
+				if (facelet == sticker) {
+					return i;
+				}
+			}
+		}
+		throw new IllegalArgumentException("No piece has sticker " + sticker);
+	}
+
+	/**
+	 * Sets result to the cube seen through a symmetry: undo, then cube, then
+	 * the symmetry. Only the permutations mean anything.
+	 */
+	private static void conjugate(CubieCube cube, CubieCube undo,
+			CubieCube symmetry, CubieCube result) {
+		CubieCube first = new CubieCube();
+		CubieCube.multiply(undo, cube, first);
+		CubieCube.multiply(first, symmetry, result);
+	}
+
+	/**
+	 * @return The symmetry that undoes symmetry s.
+	 */
+	private static int inverse(CubieCube[] symmetries, int s) {
+		CubieCube both = new CubieCube();
+		for (int t = 0; t < symmetries.length; t++) {
+			CubieCube.multiply(symmetries[s], symmetries[t], both);
+			if (both.getCornerPerm() == 0 && both.getEdgePerm() == 0
+					&& both.getTwist() == 0 && both.getFlip() == 0) {
+				return t;
+			}
+		}
+		throw new IllegalStateException("Symmetry " + s + " has no inverse.");
+	}
+
+	/**
+	 * Builds each face move from the centre frame quarter turns.
+	 *
+	 * @return The face moves.
+	 */
+	static CubieCube[] faceMoves() {
+		CubieCube[] moves = new CubieCube[MOVES];
+		for (int face = 0; face < FACE_SLICES.length; face++) {
+			CubieCube quarter = CubieCube.MOVES[MoveTable.moveId(0,
+					FACE_SLICES[face])];
+			moves[face * 3] = new CubieCube(quarter);
+			for (int turns = 1; turns < 3; turns++) {
+				moves[face * 3 + turns] = new CubieCube();
+				CubieCube.multiply(moves[face * 3 + turns - 1], quarter,
+						moves[face * 3 + turns]);
+			}
+		}
+		return moves;
+	}
+}
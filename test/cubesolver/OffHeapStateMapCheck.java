@@ -0,0 +1,125 @@
+package cubesolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks OffHeapStateMap against PackedStateMap with eight threads adding
+ * the same keys in different orders. Each key must be added by exactly one
+ * thread, a key another thread has finished adding must be found, and in
+ * the end the map must hold what a PackedStateMap filled on one thread
+ * holds. Run by "ant check".
+ *
+ * @author Andrew
+ *
+ */
+public class OffHeapStateMapCheck {
+	private static final int THREADS = 8;
+	private static final int KEYS = 50000;
+
+	public static void main(String[] args) throws InterruptedException {
+		for (boolean wide : new boolean[] { false, true }) {
+			check(wide);
+		}
+		System.out.println("OffHeapStateMapCheck passed.");
+	}
+
+	private static void check(final boolean wide) throws InterruptedException {
+		Random random = new Random(wide ? 2 : 1);
+		final long[] highs = new long[KEYS];
+		final long[] lows = new long[KEYS];
+		PackedStateMap expected = new PackedStateMap((int) PackedStateMap
+				.capacityFor(KEYS));
+		for (int i = 0; i < KEYS; i++) {
+			highs[i] = 1 + (random.nextLong() >>> 9);
+			// Some low halves are 0, which a half written slot also reads as.
+			lows[i] = !wide || i % 7 == 0 ? 0 : random.nextLong();
+			expected.putIfAbsent(highs[i], lows[i], value(highs[i]));
+		}
+		final OffHeapStateMap map = new OffHeapStateMap(KEYS, wide);
+		final AtomicIntegerArray done = new AtomicIntegerArray(KEYS);
+		final AtomicLong added = new AtomicLong();
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final long seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						fill(map, wide, highs, lows, done, added, seed);
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (!errors.isEmpty()) {
+			throw new AssertionError(errors.get(0));
+		}
+		check(added.get() == expected.size(), "added " + added.get()
+				+ " keys, expected " + expected.size());
+		check(map.size() == expected.size(), "size " + map.size()
+				+ ", expected " + expected.size());
+		for (int slot = 0; slot < expected.capacity(); slot++) {
+			long high = expected.high(slot);
+			if (high != 0) {
+				int value = wide ? map.get(high, expected.low(slot)) : map
+						.get(high);
+				check(value == expected.value(slot), "wrong value for "
+						+ high);
+			}
+		}
+		for (int i = 0; i < 1000; i++) {
+			long high = 1 + (random.nextLong() >>> 9);
+			check((wide ? map.get(high, 1) : map.get(high)) == expected.get(
+					high, wide ? 1 : 0), "found a key never added");
+		}
+		map.close();
+	}
+
+	private static void fill(OffHeapStateMap map, boolean wide, long[] highs,
+			long[] lows, AtomicIntegerArray done, AtomicLong added, long seed) {
+		Random random = new Random(seed);
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < highs.length; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, random);
+		for (int i : order) {
+			int value = value(highs[i]);
+			if (wide ? map.putIfAbsent(highs[i], lows[i], value) : map
+					.putIfAbsent(highs[i], value)) {
+				added.incrementAndGet();
+			}
+			done.set(i, 1);
+			// A key some thread has finished adding must be found.
+			int other = random.nextInt(highs.length);
+			if (done.get(other) == 1) {
+				int found = wide ? map.get(highs[other], lows[other]) : map
+						.get(highs[other]);
+				check(found == value(highs[other]), "key " + other
+						+ " not seen");
+			}
+		}
+	}
+
+	private static int value(long high) {
+		return (int) (high & 0xFF);
+	}
+
+	private static void check(boolean ok, String message) {
+		if (!ok) {
+			throw new AssertionError(message);
+		}
+	}
+}
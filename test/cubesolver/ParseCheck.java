@@ -0,0 +1,45 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * Checks that BatchSolver.parse reads each kind of line the way it should.
+ * Run by "ant check". Throws an AssertionError at the first line read
+ * wrongly.
+ *
+ * @author Andrew
+ *
+ */
+public class ParseCheck {
+	public static void main(String[] args) {
+		// 54 characters of notation, which was once read as stickers.
+		String scramble = "R U F D L B R U F D L B R U F D L B R U F D L B R U F2";
+		check(scramble.length() == MoveTable.STICKERS, "length of " + scramble);
+		Cube expected = new Cube();
+		expected.applyMoves(Notation.parse(scramble));
+		checkSame(BatchSolver.parse(scramble), expected, scramble);
+
+		Cube turned = new Cube();
+		turned.changeCube(0, 7);
+		turned.changeCube(1, 3);
+		checkSame(BatchSolver.parse("7_0 3_1"), turned, "7_0 3_1");
+
+		StringBuilder stickers = new StringBuilder();
+		for (byte color : expected.stickers()) {
+			stickers.append(FaceletParser.COLOR_LETTERS.charAt(color));
+		}
+		checkSame(BatchSolver.parse(stickers.toString()), expected,
+				stickers.toString());
+		System.out.println("ParseCheck passed.");
+	}
+
+	private static void checkSame(Cube actual, Cube expected, String line) {
+		check(Arrays.equals(actual.stickers(), expected.stickers()), line);
+	}
+
+	private static void check(boolean ok, String line) {
+		if (!ok) {
+			throw new AssertionError("Read wrongly: " + line);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package cubesolver;
+
+import java.util.Arrays;
+
+/**
+ * Checks that seeded scrambles are the same from any starting number and
+ * that neighbouring ones do not share runs of moves, as they once did when
+ * each generator started one draw after the last. Run by "ant check".
+ *
+ * @author Andrew
+ *
+ */
+public class ScrambleCheck {
+	/**
+	 * Longest run two unrelated 100 move scrambles are allowed to share. Runs
+	 * of 4 come up by chance now and then; runs of 8 should never.
+	 */
+	private static final int LONGEST_RUN = 7;
+
+	public static void main(String[] args) throws InterruptedException {
+		for (long seed : new long[] { 0, 1, 42, -1 }) {
+			Scrambler scrambler = new Scrambler(seed);
+			int[][] scrambles = scrambler.generate(0, 200, false,
+					Scrambler.DEFAULT_LENGTH, 2);
+			int[][] later = scrambler.generate(100, 100, false,
+					Scrambler.DEFAULT_LENGTH, 1);
+			for (int i = 0; i < later.length; i++) {
+				check(Arrays.equals(scrambles[100 + i], later[i]), "scramble "
+						+ (100 + i) + " of seed " + seed + " changed");
+			}
+			for (int i = 0; i + 1 < scrambles.length; i++) {
+				int run = longestRun(scrambles[i], scrambles[i + 1]);
+				check(run <= LONGEST_RUN, "scrambles " + i + " and " + (i + 1)
+						+ " of seed " + seed + " share " + run + " moves");
+			}
+		}
+		System.out.println("ScrambleCheck passed.");
+	}
+
+	/**
+	 * @return The length of the longest run of moves found in both.
+	 */
+	private static int longestRun(int[] first, int[] second) {
+		int longest = 0;
+		int[] previous = new int[second.length + 1];
+		int[] current = new int[second.length + 1];
+		for (int i = 0; i < first.length; i++) {
+			for (int j = 0; j < second.length; j++) {
+				current[j + 1] = first[i] == second[j] ? previous[j] + 1 : 0;
+				longest = Math.max(longest, current[j + 1]);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return longest;
+	}
+
+	private static void check(boolean ok, String message) {
+		if (!ok) {
+			throw new AssertionError(message);
+		}
+	}
+}